@@ -1,24 +1,97 @@
 package org.sero.cash.superzk.crypto;
 
+import java.nio.ByteBuffer;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
 import org.sero.cash.superzk.util.Arrays;
 
 import com.rfksystems.blake2b.Blake2b;
 
 public class Blake {
+    /*
+     * Personalizations are few (one per protocol hash), so each thread keeps
+     * a set-up state per personalization and hashes through it instead of
+     * redoing the parameter block on every call. The map is bounded in case a
+     * caller feeds many distinct personalizations.
+     */
+    private static final int HASHERS_PER_THREAD = 64;
+    private static final ThreadLocal<Map<ByteBuffer, Blake2bHasher>> HASHERS =
+            ThreadLocal.withInitial(() -> new LinkedHashMap<ByteBuffer, Blake2bHasher>(32, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<ByteBuffer, Blake2bHasher> eldest) {
+                    return this.size() > HASHERS_PER_THREAD;
+                }
+            });
 
     public static byte[] blake2b(byte[] personal, byte[] data) {
-        byte[] p = Arrays.rightPadBytes(personal, 16);
-        Blake2b blake2b = new Blake2b(null, 32, null, p);
-        blake2b.update(data, 0, data.length);
         byte[] out = new byte[32];
-        blake2b.digest(out, 0);
+        blake2bInto(out, 0, personal, data);
         return out;
     }
 
+    /**
+     * blake2b of the concatenation of data, without building it.
+     */
+    public static byte[] blake2b(byte[] personal, byte[]... data) {
+        byte[] out = new byte[32];
+        blake2bInto(out, 0, personal, data);
+        return out;
+    }
+
+    /**
+     * blake2b of the concatenation of data, written to out[off..off+32).
+     */
+    public static void blake2bInto(byte[] out, int off, byte[] personal, byte[]... data) {
+        assert (personal.length <= 16 && off + 32 <= out.length);
+        Map<ByteBuffer, Blake2bHasher> hashers = HASHERS.get();
+        Blake2bHasher hasher = hashers.remove(ByteBuffer.wrap(personal));
+        if (hasher == null) {
+            hasher = new Blake2bHasher(personal.clone());
+        }
+        // taken out while in use, so a failed update never leaves a dirty state behind
+        hasher.update(data).digest(out, off);
+        hashers.put(ByteBuffer.wrap(hasher.personal), hasher);
+    }
+
     public static byte[] blake2s(byte[] personal, byte[] data) {
         byte[] p = Arrays.rightPadBytes(personal, 8);
         Blake2s blake2s = new Blake2s(32, new byte[8], p);
         blake2s.update(data, data.length);
         return blake2s.digest();
     }
+
+    /**
+     * A personalized blake2b-256 for hashing many inputs in a row with one
+     * state; each digest leaves it ready for the next input. Not thread-safe.
+     */
+    public static class Blake2bHasher {
+        private final byte[] personal;
+        private final Blake2b blake2b;
+
+        public Blake2bHasher(byte[] personal) {
+            this.personal = personal;
+            this.blake2b = new Blake2b(null, 32, null, Arrays.rightPadBytes(personal, 16));
+        }
+
+        public Blake2bHasher update(byte[] data) {
+            this.blake2b.update(data, 0, data.length);
+            return this;
+        }
+
+        public Blake2bHasher update(byte[]... data) {
+            for (byte[] d : data) {
+                this.update(d);
+            }
+            return this;
+        }
+
+        public void digest(byte[] out) {
+            this.digest(out, 0);
+        }
+
+        public void digest(byte[] out, int off) {
+            this.blake2b.digest(out, off);
+        }
+    }
 }
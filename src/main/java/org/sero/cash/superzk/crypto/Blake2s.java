@@ -23,6 +23,9 @@ public class Blake2s {
     private int flag1 = 0;
     private int ctr0 = 0;
     private int ctr1 = 0;
+    private int[] initCfg;
+    private byte[] initBuffer;
+    private int initBufferLength;
 
     public Blake2s(int digestLength) {
         this(digestLength, new Blake2sTree());
@@ -154,6 +157,25 @@ public class Blake2s {
             System.arraycopy(paddedKey, 0, buffer, 0, paddedKey.length);
             bufferLength = paddedKey.length;
         }
+
+        initCfg = Arrays.copyOf(cfg, cfg.length);
+        initBuffer = Arrays.copyOf(buffer, buffer.length);
+        initBufferLength = bufferLength;
+    }
+
+    /**
+     * Back to the state right after construction, to hash another input
+     * with the same parameters.
+     */
+    public void reset() {
+        System.arraycopy(initCfg, 0, cfg, 0, cfg.length);
+        System.arraycopy(initBuffer, 0, buffer, 0, buffer.length);
+        bufferLength = initBufferLength;
+        finished = false;
+        flag0 = 0;
+        flag1 = 0;
+        ctr0 = 0;
+        ctr1 = 0;
     }
 
     private void processBlock(int length) {
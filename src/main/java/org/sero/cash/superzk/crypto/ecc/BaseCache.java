@@ -0,0 +1,102 @@
+package org.sero.cash.superzk.crypto.ecc;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import org.sero.cash.superzk.util.LruCache;
+
+/**
+ * Generators derived from keys by hash-to-curve, such as the base point of a
+ * currency, kept in an LRU cache so each is only searched for once. A key
+ * looked up HOT_USES times gets a comb table for scalars of up to bits bits,
+ * from which it multiplies at fixed-base speed; until then get(...) returns
+ * the plain point.
+ */
+public class BaseCache {
+    private static final int HOT_USES = 16;
+    private static final int COMB_TEETH = 6;
+    private static final int COMB_COMBS = 2;
+
+    private final int bits;
+    private final Function<byte[], Point> find;
+    private final LruCache<ByteBuffer, Entry> cache;
+
+    /**
+     * find maps a key to its generator and must not return null.
+     */
+    public BaseCache(int capacity, int bits, Function<byte[], Point> find) {
+        this.bits = bits;
+        this.find = find;
+        this.cache = new LruCache<ByteBuffer, Entry>(capacity);
+    }
+
+    private Entry entry(byte[] key) {
+        byte[] copy = key.clone();
+        return this.cache.get(ByteBuffer.wrap(copy), k -> new Entry(this.find.apply(copy)));
+    }
+
+    /**
+     * The generator of key.
+     */
+    public Point point(byte[] key) {
+        return this.entry(key).point;
+    }
+
+    /**
+     * The generator of key as a Mult: the point itself while the key is
+     * cold, its table-backed form once the key is hot.
+     */
+    public Mult get(byte[] key) {
+        Entry entry = this.entry(key);
+        FixedBase table = entry.table;
+        if (table == null && entry.uses.incrementAndGet() == HOT_USES) {
+            table = new FixedBase(entry.point, new Comb(entry.point, this.bits, COMB_TEETH, COMB_COMBS));
+            entry.table = table;
+        }
+        return table != null ? table : entry.point;
+    }
+
+    public int size() {
+        return this.cache.size();
+    }
+
+    public void clear() {
+        this.cache.clear();
+    }
+
+    private static class Entry {
+        final Point point;
+        final AtomicInteger uses = new AtomicInteger();
+        volatile FixedBase table;
+
+        Entry(Point point) {
+            this.point = point;
+        }
+    }
+
+    /*
+     * A comb for the short scalars, which also takes the negations of short
+     * scalars (netted balances) and falls back to the point for the rest.
+     */
+    private static class FixedBase implements Mult {
+        private final Point point;
+        private final Comb comb;
+
+        FixedBase(Point point, Comb comb) {
+            this.point = point;
+            this.comb = comb;
+        }
+
+        public Point mult(Field.FR val) {
+            if (this.comb.fits(val)) {
+                return this.comb.mult(val);
+            }
+            Field.FR neg = val.negate();
+            if (this.comb.fits(neg)) {
+                return this.comb.mult(neg).negate();
+            }
+            return this.point.mult(val);
+        }
+    }
+}
@@ -50,6 +50,10 @@ public class BitBuffer {
         return new BigInteger(1, Arrays.reverse(this.data)).shiftRight(this.rightBits);
     }
 
+    BitReader reader() {
+        return new BitReader(this.data, this.rightBits, this.bitsLen);
+    }
+
     public int bitsLength() {
         return this.bitsLen;
     }
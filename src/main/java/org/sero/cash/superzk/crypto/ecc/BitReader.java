@@ -0,0 +1,76 @@
+package org.sero.cash.superzk.crypto.ecc;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A cursor over the bits of a byte array or buffer, least significant bit of
+ * the first byte first, as BitBuffer numbers them. Reads straight from the
+ * underlying bytes: nothing is copied and no BigInteger is built.
+ */
+public final class BitReader {
+    private final ByteBuffer buf;
+    private final int offset;
+    private final int bitsLen;
+    private int cursor;
+
+    public BitReader(byte[] data) {
+        this(data, 0, data.length * 8);
+    }
+
+    public BitReader(byte[] data, int start, int bitsLen) {
+        this(ByteBuffer.wrap(data), start, bitsLen);
+    }
+
+    /**
+     * Reads the bits between the buffer's position and limit; the buffer's
+     * own position is not moved.
+     */
+    public BitReader(ByteBuffer buf) {
+        this(buf, buf.position() * 8, buf.remaining() * 8);
+    }
+
+    private BitReader(ByteBuffer buf, int start, int bitsLen) {
+        assert (start >= 0 && bitsLen >= 0 && (start + bitsLen + 7) / 8 <= buf.limit());
+        this.buf = buf;
+        this.offset = start;
+        this.bitsLen = bitsLen;
+    }
+
+    public int bitsLength() {
+        return this.bitsLen;
+    }
+
+    public int position() {
+        return this.cursor;
+    }
+
+    public BitReader seek(int bit) {
+        this.cursor = bit;
+        return this;
+    }
+
+    /**
+     * Reads the next len (at most 31) bits as an unsigned int and advances by
+     * len. Bits at or past limit, or past the end, read as zero.
+     */
+    public int next(int len, int limit) {
+        int start = this.cursor;
+        this.cursor += len;
+        int n = Math.min(Math.min(start + len, limit), this.bitsLen) - start;
+        if (n <= 0) {
+            return 0;
+        }
+        int pos = this.offset + start;
+        int index = pos >>> 3;
+        int end = Math.min(index + 5, this.buf.limit());
+        long word = 0;
+        for (int i = index; i < end; i++) {
+            word |= (this.buf.get(i) & 0xffL) << (8 * (i - index));
+        }
+        return (int) ((word >>> (pos & 7)) & ((1L << n) - 1));
+    }
+
+    public int next(int len) {
+        return this.next(len, this.bitsLen);
+    }
+}
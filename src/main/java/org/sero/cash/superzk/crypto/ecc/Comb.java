@@ -0,0 +1,212 @@
+package org.sero.cash.superzk.crypto.ecc;
+
+/**
+ * Lim-Lee comb fixed-base multiplication. The scalar's bits are laid out as
+ * teeth rows of spacing = ceil(bits / teeth) bits each, and the rows are cut
+ * into combs blocks of rows = ceil(spacing / combs) columns. table[j][u] holds
+ * sum(2^(i * spacing + j * rows) * base) over the set bits i of u, so one pass
+ * over the columns costs rows - 1 doublings and at most combs * rows mixed
+ * additions, from combs * 2^teeth table points.
+ *
+ * The table is built on first use, once, unless one was loaded before that
+ * (see TableFile). A comb made for fewer bits than a
+ * full scalar has a smaller table or fewer doublings, and mult only accepts
+ * scalars that fit in those bits.
+ */
+public class Comb implements Mult {
+    public static final int MIN_TEETH = 2;
+    public static final int MAX_TEETH = 16;
+
+    /*
+     * Same per-point heap estimate as Group's tables.
+     */
+    private static final long POINT_HEAP_BYTES = 256;
+
+    private final Point base;
+    private final int bits;
+    private final int teeth;
+    private final int combs;
+    private final int spacing;
+    private final int rows;
+    private volatile Point[][] table;
+
+    public Comb(Point base, int teeth, int combs) {
+        this(base, Constants.FR_MODULUS.bitLength(), teeth, combs);
+    }
+
+    public Comb(Point base, int bits, int teeth, int combs) {
+        check(bits, teeth, combs);
+        this.base = base;
+        this.bits = bits;
+        this.teeth = teeth;
+        this.combs = combs;
+        this.spacing = spacing(bits, teeth);
+        this.rows = (this.spacing + combs - 1) / combs;
+    }
+
+    static void check(int teeth, int combs) {
+        check(Constants.FR_MODULUS.bitLength(), teeth, combs);
+    }
+
+    private static void check(int bits, int teeth, int combs) {
+        if (bits < 1 || bits > Constants.FR_MODULUS.bitLength()) {
+            throw new RuntimeException("comb bits must be in [1, " + Constants.FR_MODULUS.bitLength() + "]");
+        }
+        if (teeth < MIN_TEETH || teeth > MAX_TEETH) {
+            throw new RuntimeException("comb teeth must be in [" + MIN_TEETH + ", " + MAX_TEETH + "]");
+        }
+        if (combs < 1 || combs > spacing(bits, teeth)) {
+            throw new RuntimeException("comb count must be in [1, " + spacing(bits, teeth) + "]");
+        }
+    }
+
+    private static int spacing(int bits, int teeth) {
+        return (bits + teeth - 1) / teeth;
+    }
+
+    public int bits() {
+        return this.bits;
+    }
+
+    int teeth() {
+        return this.teeth;
+    }
+
+    int combs() {
+        return this.combs;
+    }
+
+    /**
+     * Whether val is below 2^bits, so that mult(val) may be used.
+     */
+    public boolean fits(Field.FR val) {
+        return fits(val.toLimbs(), this.bits);
+    }
+
+    static boolean fits(long[] k, int bits) {
+        for (int i = bits >>> 6; i < k.length; i++) {
+            long high = i == bits >>> 6 ? k[i] >>> (bits & 63) : k[i];
+            if (high != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * The most teeth whose table for the given number of combs fits in budget
+     * bytes of heap; MIN_TEETH if even that does not fit.
+     */
+    public static int teethFor(int combs, long budget) {
+        int teeth = MIN_TEETH;
+        for (int t = MIN_TEETH + 1; t <= MAX_TEETH; t++) {
+            if ((long) combs * (1 << t) * POINT_HEAP_BYTES <= budget) {
+                teeth = t;
+            }
+        }
+        return teeth;
+    }
+
+    public Point mult(Field.FR val) {
+        long[] k = val.toLimbs();
+        if (!fits(k, this.bits)) {
+            throw new RuntimeException("scalar exceeds " + this.bits + " comb bits");
+        }
+        Point[][] table = this.table();
+        MutablePoint acc = new MutablePoint();
+        for (int c = this.rows - 1; c >= 0; c--) {
+            acc.twiceAssign();
+            for (int j = 0; j < this.combs; j++) {
+                int column = j * this.rows + c;
+                if (column >= this.spacing) {
+                    continue;
+                }
+                int u = 0;
+                for (int i = 0; i < this.teeth; i++) {
+                    u |= bit(k, i * this.spacing + column) << i;
+                }
+                if (u != 0) {
+                    acc.addAssign(table[j][u]);
+                }
+            }
+        }
+        return acc.toPoint();
+    }
+
+    Point[][] table() {
+        Point[][] table = this.table;
+        if (table == null) {
+            synchronized (this) {
+                table = this.table;
+                if (table == null) {
+                    table = this.build();
+                    this.table = table;
+                }
+            }
+        }
+        return table;
+    }
+
+    /*
+     * Takes a table read back from a resource, unless one is already in place.
+     * False if its shape is not this comb's.
+     */
+    boolean load(Point[][] table) {
+        if (table.length != this.combs) {
+            return false;
+        }
+        for (Point[] row : table) {
+            if (row.length != 1 << this.teeth) {
+                return false;
+            }
+        }
+        synchronized (this) {
+            if (this.table == null) {
+                this.table = table;
+            }
+        }
+        return true;
+    }
+
+    private Point[][] build() {
+        int size = 1 << this.teeth;
+        Point[] teeth = new Point[this.teeth];
+        MutablePoint acc = new MutablePoint(this.base);
+        for (int i = 0; i < this.teeth; i++) {
+            teeth[i] = acc.toPoint();
+            for (int s = 0; s < this.spacing; s++) {
+                acc.twiceAssign();
+            }
+        }
+
+        Point[] flat = new Point[this.combs * size];
+        flat[0] = Point.ZERO;
+        for (int u = 1; u < size; u++) {
+            int top = 31 - Integer.numberOfLeadingZeros(u);
+            flat[u] = flat[u ^ (1 << top)].add(teeth[top]);
+        }
+        for (int j = 1; j < this.combs; j++) {
+            for (int u = 0; u < size; u++) {
+                acc.set(flat[(j - 1) * size + u]);
+                for (int s = 0; s < this.rows; s++) {
+                    acc.twiceAssign();
+                }
+                flat[j * size + u] = acc.toPoint();
+            }
+        }
+        flat = Point.batchNormalize(flat);
+
+        Point[][] table = new Point[this.combs][];
+        for (int j = 0; j < this.combs; j++) {
+            table[j] = java.util.Arrays.copyOfRange(flat, j * size, (j + 1) * size);
+        }
+        return table;
+    }
+
+    private static int bit(long[] k, int index) {
+        if (index >= 64 * k.length) {
+            return 0;
+        }
+        return (int) (k[index >>> 6] >>> (index & 63)) & 1;
+    }
+}
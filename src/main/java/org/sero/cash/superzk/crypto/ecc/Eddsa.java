@@ -1,50 +1,87 @@
 package org.sero.cash.superzk.crypto.ecc;
 
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
 import org.sero.cash.superzk.crypto.Blake;
 import org.sero.cash.superzk.util.Arrays;
 
 public class Eddsa {
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    private static final byte[] HASH_1 = "SZK$DSA$HASH1".getBytes();
+    private static final byte[] HASH_2 = "SZK$DSA$HASH2".getBytes();
+    private static final byte[] HASH_1_N = "SZK$DSAN$HASH1".getBytes();
+    private static final byte[] HASH_2_N = "SZK$DSAN$HASH2".getBytes();
+
+    /**
+     * A 64-byte signature made by sign(msg, sk, base), or a 96-byte one made by
+     * sign(msg, sk, base0, base1), with the public keys and bases to check it
+     * against; see verifyBatch.
+     */
+    public static class SigItem {
+        final byte[] msg;
+        final byte[] sign;
+        final Point[] pks;
+        final Mult[] bases;
 
-    private static byte[] hash_1(byte[] input) {
-        return Blake.blake2b("SZK$DSA$HASH1".getBytes(), input);
+        public SigItem(byte[] msg, byte[] sign, Point pk, Mult base) {
+            this(msg, sign, new Point[]{pk}, new Mult[]{base});
+        }
+
+        public SigItem(byte[] msg, byte[] sign, Point pk0, Point pk1, Mult base0, Mult base1) {
+            this(msg, sign, new Point[]{pk0, pk1}, new Mult[]{base0, base1});
+        }
+
+        private SigItem(byte[] msg, byte[] sign, Point[] pks, Mult[] bases) {
+            this.msg = msg;
+            this.sign = sign;
+            this.pks = pks;
+            this.bases = bases;
+        }
     }
 
-    private static byte[] hash_2(byte[] input) {
-        return Blake.blake2b("SZK$DSA$HASH2".getBytes(), input);
+    /*
+     * A parsed SigItem: S * bases[j] - m * pks[j] == rs[j] for every j.
+     */
+    private static class Claim {
+        final SigItem item;
+        final Field.FR s;
+        final Point[] rs;
+        Field.FR m;
+
+        Claim(SigItem item, Field.FR s, Point[] rs) {
+            this.item = item;
+            this.s = s;
+            this.rs = rs;
+        }
     }
 
-    private static byte[] hash_1_n(byte[] input) {
-        return Blake.blake2b("SZK$DSAN$HASH1".getBytes(), input);
+    static byte[] hash_1(byte[]... input) {
+        return Blake.blake2b(HASH_1, input);
     }
 
-    private static byte[] hash_2_n(byte[] input) {
-        return Blake.blake2b("SZK$DSAN$HASH2".getBytes(), input);
+    static byte[] hash_2(byte[]... input) {
+        return Blake.blake2b(HASH_2, input);
     }
 
+    static byte[] hash_1_n(byte[]... input) {
+        return Blake.blake2b(HASH_1_N, input);
+    }
+
+    static byte[] hash_2_n(byte[]... input) {
+        return Blake.blake2b(HASH_2_N, input);
+    }
 
-    public static byte[] sign(byte[] msg, Field.FR sk, Mult base0, Mult base1) {
-        byte[] buf1 = Arrays.concat(Arrays.randomBytes(32), sk.toBytes(), msg);
-        Field.FR frA = Field.newFR(hash_1_n(buf1));
-        Point R0 = base0.mult(frA);
-        if (R0 == null || R0.isZero() || !R0.isValid()) {
-            return null;
-        }
-        Point R1 = base1.mult(frA);
-        if (R1 == null || R1.isZero() || !R1.isValid()) {
-            return null;
-        }
-        Point PK0 = base0.mult(sk);
-        if (PK0 == null || PK0.isZero() || !PK0.isValid()) {
-            return null;
-        }
-        Point PK1 = base1.mult(sk);
-        if (PK1 == null || PK1.isZero() || !PK1.isValid()) {
-            return null;
-        }
 
-        byte[] buf2 = Arrays.concat(R0.toBytes(), R1.toBytes(), PK0.toBytes(), PK1.toBytes(), msg);
-        Field.FR S = frA.add(sk.mul(Field.newFR(hash_2_n(buf2))));
-        return Arrays.concat(S.toBytes(), R0.toBytes(), R1.toBytes());
+    /**
+     * See EddsaSigner, which also caches the public keys for repeated use.
+     */
+    public static byte[] sign(byte[] msg, Field.FR sk, Mult base0, Mult base1) {
+        return new EddsaSigner(sk, base0, base1).sign(msg);
     }
 
     public static boolean verify(byte[] msg, byte[] sign, Point pk0, Point pk1, Mult base0, Mult base1) {
@@ -57,8 +94,8 @@ public class Eddsa {
             return false;
         }
         Field.FR S = Field.newFR(Arrays.slice(sign, 0, 32));
-        Point R0 = Point.fromBytes(Arrays.slice(sign, 32, 64));
-        Point R1 = Point.fromBytes(Arrays.slice(sign, 64, 96));
+        Point R0 = Point.decode(Arrays.slice(sign, 32, 64));
+        Point R1 = Point.decode(Arrays.slice(sign, 64, 96));
 
         if (S == null || S.isZero()) {
             return false;
@@ -69,27 +106,20 @@ public class Eddsa {
         if (R1 == null || R1.isZero() || !R1.isValid()) {
             return false;
         }
-
-        Point SB0 = base0.mult(S);
-        if (SB0 == null || SB0.isZero() || !SB0.isValid()) {
-            return false;
-        }
-        Point SB1 = base1.mult(S);
-        if (SB1 == null || SB1.isZero() || !SB1.isValid()) {
+        if (degenerate(S, base0, null) || degenerate(S, base1, null)) {
             return false;
         }
 
-        byte[] buf = Arrays.concat(R0.toBytes(), R1.toBytes(),pk0.toBytes(), pk1.toBytes(), msg);
-        Field.FR m = Field.newFR(hash_2_n(buf));
-        Point ma0 = pk0.mult(m);
-        Point right0 = R0.add(ma0);
-        if (!SB0.isEqualTo(right0)) {
+        Field.FR m = Field.newFR(hash_2_n(R0.toBytes(), R1.toBytes(), pk0.toBytes(), pk1.toBytes(), msg));
+        Field.FR neg_m = m.negate();
+
+        // S*B - m*PK == R
+        Point left0 = Point.multiScalar(new Field.FR[]{S, neg_m}, new Mult[]{base0, pk0});
+        if (!left0.isEqualTo(R0)) {
             return false;
         }
-
-        Point ma1 = pk1.mult(m);
-        Point right1 = R1.add(ma1);
-        if (!SB1.isEqualTo(right1)) {
+        Point left1 = Point.multiScalar(new Field.FR[]{S, neg_m}, new Mult[]{base1, pk1});
+        if (!left1.isEqualTo(R1)) {
             return false;
         }
 
@@ -97,53 +127,252 @@ public class Eddsa {
     }
 
 
-	public static byte[] sign(byte[] msg, Field.FR sk, Mult base) {
-		byte[] buf1 = Arrays.concat(Arrays.randomBytes(32), sk.toBytes(), msg);
-		
-		Field.FR frA = Field.newFR(hash_1(buf1));
-		
-		
-		Point R = base.mult(frA);
-		
-		if (R == null) {
-			return null;
-		}
-		Point PK = base.mult(sk);
-		if (PK == null || !PK.isValid()) {
-			return null;
-		}
-		byte[] buf2 = Arrays.concat(R.toBytes(), PK.toBytes(), msg);
-		Field.FR frM = Field.newFR(hash_2(buf2));
-		Field.FR S = frA.add(sk.mul(frM));
-		return Arrays.concat(R.toBytes(), S.toBytes());
-	}
+    public static byte[] sign(byte[] msg, Field.FR sk, Mult base) {
+        return new EddsaSigner(sk, base).sign(msg);
+    }
 
     public static boolean verify(byte[] msg, byte[] sign, Point pk, Mult base) {
-        assert (sign.length == 64);
+        if (pk.isZero()) {
+            return false;
+        }
+        return verify(msg, sign, pk, pk.toBytes(), base);
+    }
 
+    /**
+     * verify against a prepared key, which skips the key checks and encoding
+     * and multiplies from the key's tables.
+     */
+    public static boolean verify(byte[] msg, byte[] sign, PreparedPublicKey pk, Mult base) {
         if (pk.isZero()) {
             return false;
         }
-        Point R = Point.fromBytes(Arrays.slice(sign, 0, 32));
+        return verify(msg, sign, pk, pk.encoded(), base);
+    }
+
+    private static boolean verify(byte[] msg, byte[] sign, Mult pk, byte[] pkBytes, Mult base) {
+        assert (sign.length == 64);
+
+        Point R = Point.decode(Arrays.slice(sign, 0, 32));
         if (R == null || R.isZero() || !R.isValid()) {
             return false;
         }
         Field.FR S = Field.newFR(Arrays.slice(sign, 32, 64));
-        if (S.isZero()) {
+        if (S.isZero() || degenerate(S, base, null)) {
             return false;
         }
-        Point sb = base.mult(S);
-        if (sb.isZero() || !sb.isValid()) {
-            return false;
+        Field.FR m = Field.newFR(hash_2(R.toBytes(), pkBytes, msg));
+
+        // S*B - m*PK == R
+        Point left = Point.multiScalar(new Field.FR[]{S, m.negate()}, new Mult[]{base, pk});
+        return left.isEqualTo(R);
+    }
+
+    /**
+     * verify over many signatures, single- and dual-base alike. With a random
+     * 128-bit weight z per equation, sum(z * S * B) - sum(z * m * PK) ==
+     * sum(z * R) is checked with one multi-scalar mult per side, and the terms
+     * of equations sharing a base Mult are merged so each fixed base is
+     * multiplied once. A failing batch is split in two and each half
+     * re-checked with fresh weights, down to single items.
+     *
+     * Unlike verify, the equations are cofactored: the difference of the two
+     * sides is multiplied by 8 before it is compared with the identity, since
+     * random weights cannot catch small-order components (two R shifted by
+     * the order-2 point cancel under any odd weights) and testing every point
+     * for subgroup membership costs a scalar mult each, more than the batch
+     * saves. ret[i] is therefore whether 8 * (S * B - m * PK - R) is the
+     * identity for every equation of item i. For items whose R, PK and Point
+     * bases all lie in the prime-order subgroup, which is every honestly made
+     * signature and key, this is verify's answer, except that a batch with an
+     * invalid item among them passes with probability at most 2^-127. An item
+     * carrying a small-order component may pass here where verify rejects it;
+     * callers that must reproduce verify's verdict on such points have to test
+     * them with Point.isInSubgroup or use verify.
+     *
+     * Returns one result per item, in order; null items are invalid.
+     */
+    public static boolean[] verifyBatch(List<SigItem> items) {
+        int n = items.size();
+        Claim[] claims = new Claim[n];
+        Map<Mult, Boolean> regular = new IdentityHashMap<Mult, Boolean>();
+        List<Point> pts = new ArrayList<Point>();
+        for (int i = 0; i < n; i++) {
+            SigItem item = items.get(i);
+            claims[i] = item == null ? null : parse(item, regular);
+            if (claims[i] != null) {
+                pts.addAll(java.util.Arrays.asList(claims[i].rs));
+                pts.addAll(java.util.Arrays.asList(item.pks));
+            }
         }
-        byte[] buf = Arrays.concat(R.toBytes(), pk.toBytes(), msg);
-        Field.FR m = Field.newFR(hash_2(buf));
-        Point ma = pk.mult(m);
-        Point right = R.add(ma);
-        if (sb.isEqualTo(right)) {
-            return true;
+
+        byte[][] encoded = Point.batchToBytes(pts.toArray(new Point[0]));
+        boolean[] ret = new boolean[n];
+        int[] live = new int[n];
+        int count = 0;
+        for (int i = 0, off = 0; i < n; i++) {
+            Claim claim = claims[i];
+            if (claim == null) {
+                continue;
+            }
+            int len = 2 * claim.rs.length;
+            byte[][] buf = java.util.Arrays.copyOfRange(encoded, off, off + len + 1);
+            buf[len] = claim.item.msg;
+            claim.m = Field.newFR(claim.rs.length == 1 ? hash_2(buf) : hash_2_n(buf));
+            off += len;
+            live[count++] = i;
+        }
+
+        bisect(claims, live, 0, count, ret);
+        return ret;
+    }
+
+    /*
+     * The same checks verify makes before its equations; null if any fails.
+     */
+    private static Claim parse(SigItem item, Map<Mult, Boolean> regular) {
+        for (Point pk : item.pks) {
+            if (pk == null || pk.isZero() || (item.pks.length == 2 && !pk.isValid())) {
+                return null;
+            }
+        }
+        Field.FR S;
+        Point[] rs = new Point[item.pks.length];
+        if (rs.length == 1) {
+            assert (item.sign.length == 64);
+            rs[0] = Point.decode(Arrays.slice(item.sign, 0, 32));
+            S = Field.newFR(Arrays.slice(item.sign, 32, 64));
         } else {
+            assert (item.sign.length == 96);
+            S = Field.newFR(Arrays.slice(item.sign, 0, 32));
+            rs[0] = Point.decode(Arrays.slice(item.sign, 32, 64));
+            rs[1] = Point.decode(Arrays.slice(item.sign, 64, 96));
+        }
+        if (S.isZero()) {
+            return null;
+        }
+        for (Point r : rs) {
+            if (r == null || r.isZero() || !r.isValid()) {
+                return null;
+            }
+        }
+        for (Mult base : item.bases) {
+            if (degenerate(S, base, regular)) {
+                return null;
+            }
+        }
+        return new Claim(item, S, rs);
+    }
+
+    /*
+     * Whether S * base is the identity or off the curve, which verify rejects
+     * as it did before S * B went into one multiScalar with m * PK. Group
+     * generators, and Points on the curve whose order does not divide 8, have
+     * an order divisible by l and so never give the identity for 0 < S < l:
+     * only other bases pay for the mult. regular, if given, memoizes that
+     * test per base by identity.
+     */
+    private static boolean degenerate(Field.FR S, Mult base, Map<Mult, Boolean> regular) {
+        Boolean ok = regular == null ? null : regular.get(base);
+        if (ok == null) {
+            ok = isRegular(base);
+            if (regular != null) {
+                regular.put(base, ok);
+            }
+        }
+        if (ok) {
             return false;
         }
+        Point sb = base.mult(S);
+        return sb.isZero() || !sb.isValid();
+    }
+
+    private static boolean isRegular(Mult base) {
+        if (base instanceof Group) {
+            return true;
+        }
+        if (base instanceof PreparedPublicKey) {
+            base = ((PreparedPublicKey) base).point();
+        }
+        if (base instanceof Point) {
+            Point point = (Point) base;
+            return point.isValid() && !isSmall(point);
+        }
+        return false;
+    }
+
+    private static void bisect(Claim[] claims, int[] live, int from, int to, boolean[] ret) {
+        if (from == to) {
+            return;
+        }
+        if (to - from == 1 ? check(claims[live[from]]) : checkBatch(claims, live, from, to)) {
+            for (int k = from; k < to; k++) {
+                ret[live[k]] = true;
+            }
+            return;
+        }
+        if (to - from == 1) {
+            return;
+        }
+        int mid = (from + to) >>> 1;
+        bisect(claims, live, from, mid, ret);
+        bisect(claims, live, mid, to, ret);
+    }
+
+    private static boolean check(Claim claim) {
+        Field.FR neg_m = claim.m.negate();
+        for (int j = 0; j < claim.rs.length; j++) {
+            Point left = Point.multiScalar(new Field.FR[]{claim.s, neg_m}, new Mult[]{claim.item.bases[j], claim.item.pks[j]});
+            if (!isSmall(left.add(claim.rs[j].negate()))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean checkBatch(Claim[] claims, int[] live, int from, int to) {
+        Map<Mult, Field.FR> bases = new IdentityHashMap<Mult, Field.FR>();
+        List<Field.FR> leftScalars = new ArrayList<Field.FR>();
+        List<Mult> leftBases = new ArrayList<Mult>();
+        List<Field.FR> rightScalars = new ArrayList<Field.FR>();
+        List<Mult> rightBases = new ArrayList<Mult>();
+        for (int k = from; k < to; k++) {
+            Claim claim = claims[live[k]];
+            for (int j = 0; j < claim.rs.length; j++) {
+                Field.FR z = weight();
+                Mult base = claim.item.bases[j];
+                Field.FR zs = z.mul(claim.s);
+                Field.FR sum = bases.get(base);
+                bases.put(base, sum == null ? zs : sum.add(zs));
+                leftScalars.add(z.mul(claim.m).negate());
+                leftBases.add(claim.item.pks[j]);
+                rightScalars.add(z);
+                rightBases.add(claim.rs[j]);
+            }
+        }
+        for (Map.Entry<Mult, Field.FR> entry : bases.entrySet()) {
+            leftScalars.add(entry.getValue());
+            leftBases.add(entry.getKey());
+        }
+
+        Point left = Point.multiScalar(leftScalars.toArray(new Field.FR[0]), leftBases.toArray(new Mult[0]));
+        Point right = Point.multiScalar(rightScalars.toArray(new Field.FR[0]), rightBases.toArray(new Mult[0]));
+        return isSmall(left.add(right.negate()));
+    }
+
+    /*
+     * Whether 8 * p is the identity.
+     */
+    private static boolean isSmall(Point p) {
+        return p.twice().twice().twice().isZero();
+    }
+
+    /*
+     * A uniformly random odd (so nonzero) 128-bit weight.
+     */
+    private static Field.FR weight() {
+        byte[] buf = new byte[16];
+        RANDOM.nextBytes(buf);
+        buf[0] |= 1;
+        return Field.newFR(buf);
     }
 }
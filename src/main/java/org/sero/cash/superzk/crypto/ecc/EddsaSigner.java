@@ -0,0 +1,101 @@
+package org.sero.cash.superzk.crypto.ecc;
+
+import org.sero.cash.superzk.util.Arrays;
+
+/**
+ * Eddsa signing bound to one secret key and one base, or a pair of bases for
+ * the 96-byte proofs. The public keys, their encodings and their validity
+ * are computed once here, so each sign costs only the nonce mults. Produces
+ * exactly what the matching Eddsa.sign overload does.
+ */
+public class EddsaSigner {
+    private final Field.FR sk;
+    private final byte[] skBytes;
+    private final Mult[] bases;
+    private final Point[] pks;
+    private final byte[] pkBytes;
+    private final boolean valid;
+
+    public EddsaSigner(Field.FR sk, Mult base) {
+        this(sk, new Mult[]{base});
+    }
+
+    public EddsaSigner(Field.FR sk, Mult base0, Mult base1) {
+        this(sk, new Mult[]{base0, base1});
+    }
+
+    private EddsaSigner(Field.FR sk, Mult[] bases) {
+        this.sk = sk;
+        this.skBytes = sk.toBytes();
+        this.bases = bases;
+        this.pks = new Point[bases.length];
+        boolean valid = true;
+        for (int i = 0; i < bases.length; i++) {
+            Point pk = bases[i].mult(sk);
+            // the single-base scheme never rejected a zero key
+            if (pk == null || (bases.length == 2 && pk.isZero()) || !pk.isValid()) {
+                valid = false;
+                break;
+            }
+            this.pks[i] = pk;
+        }
+        this.valid = valid;
+        this.pkBytes = valid ? Arrays.concat(Point.batchToBytes(this.pks)) : null;
+    }
+
+    /**
+     * The public key for base (or base0).
+     */
+    public Point publicKey() {
+        return this.pks[0];
+    }
+
+    /**
+     * The public key for base1 of a two-base signer.
+     */
+    public Point publicKey1() {
+        return this.pks[1];
+    }
+
+    public boolean isValid() {
+        return this.valid;
+    }
+
+    /**
+     * The signature of msg, or null where Eddsa.sign would return null.
+     */
+    public byte[] sign(byte[] msg) {
+        if (!this.valid) {
+            return null;
+        }
+        return this.bases.length == 1 ? this.sign1(msg) : this.sign2(msg);
+    }
+
+    private byte[] sign1(byte[] msg) {
+        Field.FR frA = Field.newFR(Eddsa.hash_1(Arrays.randomBytes(32), this.skBytes, msg));
+        Point R = this.bases[0].mult(frA);
+        if (R == null) {
+            return null;
+        }
+        byte[] r = R.toBytes();
+        Field.FR frM = Field.newFR(Eddsa.hash_2(r, this.pkBytes, msg));
+        Field.FR S = frA.add(this.sk.mul(frM));
+        return Arrays.concat(r, S.toBytes());
+    }
+
+    private byte[] sign2(byte[] msg) {
+        Field.FR frA = Field.newFR(Eddsa.hash_1_n(Arrays.randomBytes(32), this.skBytes, msg));
+        Point R0 = this.bases[0].mult(frA);
+        if (R0 == null || R0.isZero() || !R0.isValid()) {
+            return null;
+        }
+        Point R1 = this.bases[1].mult(frA);
+        if (R1 == null || R1.isZero() || !R1.isValid()) {
+            return null;
+        }
+        byte[][] rs = Point.batchToBytes(R0, R1);
+        Field.FR frM = Field.newFR(Eddsa.hash_2_n(rs[0], rs[1], this.pkBytes, msg));
+        Field.FR S = frA.add(this.sk.mul(frM));
+        return Arrays.concat(S.toBytes(), rs[0], rs[1]);
+    }
+}
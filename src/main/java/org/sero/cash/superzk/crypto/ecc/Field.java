@@ -7,9 +7,11 @@ import org.sero.cash.superzk.json.HexType;
 import org.sero.cash.superzk.util.Arrays;
 import org.sero.cash.superzk.util.HexUtils;
 
-public class Field<T extends Field<?>> {
-    public BigInteger x;
-    public BigInteger q;
+public abstract class Field<T extends Field<?>> {
+    public final BigInteger q;
+
+    final long[] v;
+    final Montgomery m;
 
     public static class FQ extends Field<FQ> {
 
@@ -17,16 +19,25 @@ public class Field<T extends Field<?>> {
         public static FQ ZERO = newFQ(BigInteger.valueOf(0));
         public static FQ TWO = newFQ(BigInteger.valueOf(2));
 
-        private FQ(String val) {
-            this(new BigInteger(val, 10));
+        private FQ(BigInteger x) {
+            this(Montgomery.FQ.fromBigInteger(x));
         }
 
-        private FQ(String val, int base) {
-            this(new BigInteger(val, base));
+        FQ(long[] v) {
+            super(v, Montgomery.FQ);
         }
 
-        private FQ(BigInteger x) {
-            super(x, Constants.FQ_MODULUS);
+        @Override
+        FQ newInstance(long[] v) {
+            return new FQ(v);
+        }
+
+        /**
+         * Deterministic Tonelli-Shanks; see {@link Sqrt}.
+         */
+        @Override
+        public FQ sqrt() {
+            return Sqrt.ratio(this, ONE);
         }
     }
 
@@ -34,17 +45,17 @@ public class Field<T extends Field<?>> {
         public static FR ONE = newFR(BigInteger.valueOf(1));
         public static FR ZERO = newFR(BigInteger.valueOf(0));
 
-
-        private FR(String val) {
-            this(new BigInteger(val, 10));
+        private FR(BigInteger x) {
+            this(Montgomery.FR.fromBigInteger(x));
         }
 
-        private FR(String val, int base) {
-            this(new BigInteger(val, base));
+        FR(long[] v) {
+            super(v, Montgomery.FR);
         }
 
-        private FR(BigInteger x) {
-            super(x, Constants.FR_MODULUS);
+        @Override
+        FR newInstance(long[] v) {
+            return new FR(v);
         }
     }
 
@@ -57,7 +68,10 @@ public class Field<T extends Field<?>> {
     }
 
     public static FQ newFQ(byte[] data) {
-        return new FQ(new BigInteger(1, Arrays.reverse(data)));
+        if (data.length > 32) {
+            return new FQ(new BigInteger(1, Arrays.reverse(Arrays.copy(data))));
+        }
+        return new FQ(Montgomery.FQ.fromBytes(data));
     }
 
     public static FQ newFQ(String val) {
@@ -73,7 +87,10 @@ public class Field<T extends Field<?>> {
     }
 
     public static FR newFR(byte[] data) {
-        return new FR(new BigInteger(1, Arrays.reverse(data)));
+        if (data.length > 32) {
+            return new FR(new BigInteger(1, Arrays.reverse(Arrays.copy(data))));
+        }
+        return new FR(Montgomery.FR.fromBytes(data));
     }
 
     public static FR newFR(long n) {
@@ -92,73 +109,110 @@ public class Field<T extends Field<?>> {
         return new FR(x);
     }
 
-    private Field(BigInteger x, BigInteger q) {
-        this.x = x.mod(q);
-        this.q = q;
+    /**
+     * Inverts every element with a single field inversion (Montgomery's
+     * trick). Zero maps to zero, as in {@link #invert}.
+     */
+    public static FQ[] batchInvert(FQ[] values) {
+        FQ[] ret = new FQ[values.length];
+        FQ acc = FQ.ONE;
+        for (int i = 0; i < values.length; i++) {
+            if (!values[i].isZero()) {
+                ret[i] = acc;
+                acc = acc.mul(values[i]);
+            }
+        }
+        FQ inv = acc.invert();
+        for (int i = values.length - 1; i >= 0; i--) {
+            if (values[i].isZero()) {
+                ret[i] = FQ.ZERO;
+            } else {
+                ret[i] = ret[i].mul(inv);
+                inv = inv.mul(values[i]);
+            }
+        }
+        return ret;
+    }
+
+    private Field(long[] v, Montgomery m) {
+        this.v = v;
+        this.m = m;
+        this.q = m.modulus;
     }
 
-    @SuppressWarnings({ "unchecked"})
-	private T newInstance(BigInteger val) {
-        if (this.getClass().equals(FQ.class)) {
-            return (T) new FQ(val);
-        } else {
-            return (T) new FR(val);
-        }
+    abstract T newInstance(long[] v);
+
+    private T newInstance(BigInteger val) {
+        return newInstance(this.m.fromBigInteger(val));
     }
 
     public T add(T val) {
-        return newInstance(this.x.add(val.x));
+        long[] ret = new long[Montgomery.LIMBS];
+        this.m.add(this.v, val.v, ret);
+        return newInstance(ret);
     }
 
     public T mul(T val) {
-        return newInstance(this.x.multiply(val.x));
+        long[] ret = new long[Montgomery.LIMBS];
+        this.m.mul(this.v, val.v, ret);
+        return newInstance(ret);
     }
 
     public T sub(T val) {
-        return newInstance(this.x.subtract(val.x));
+        long[] ret = new long[Montgomery.LIMBS];
+        this.m.sub(this.v, val.v, ret);
+        return newInstance(ret);
     }
 
     public T div(T val) {
-        return newInstance(this.x.divide(val.x));
+        return newInstance(this.toBigNumber().divide(val.toBigNumber()));
     }
 
     public T negate() {
-        return newInstance(this.x.negate());
+        long[] ret = new long[Montgomery.LIMBS];
+        this.m.negate(this.v, ret);
+        return newInstance(ret);
     }
 
     public T square() {
-        return newInstance(this.x.multiply(this.x));
+        long[] ret = new long[Montgomery.LIMBS];
+        this.m.square(this.v, ret);
+        return newInstance(ret);
     }
 
     public T invert() {
-        return newInstance(this.x.modInverse(this.q));
+        long[] ret = new long[Montgomery.LIMBS];
+        this.m.invert(this.v, ret);
+        return newInstance(ret);
     }
 
     public T pow() {
-        return newInstance(this.x.pow(2));
+        return this.square();
     }
 
+    @SuppressWarnings({ "unchecked"})
     public T sqrt() {
         if (this.isZero()) {
-            return newInstance(BigInteger.ZERO);
+            return (T) this;
         }
+        BigInteger x = this.toBigNumber();
         // p mod 4 == 3
         if (q.testBit(1)) {
-            T z = newInstance(this.x.modPow(this.q.shiftRight(2).add(Constants.ONE), this.q));
-            return z.square().equals(this) ? z : null;
+            T z = newInstance(x.modPow(this.q.shiftRight(2).add(Constants.ONE), this.q));
+            return z.square().isEqualTo(this) ? z : null;
         }
 
         // p mod 4 == 1
         BigInteger qMinusOne = this.q.subtract(Constants.ONE);
         BigInteger legendreExponent = qMinusOne.shiftRight(1);
-        if (!(this.x.modPow(legendreExponent, this.q).equals(Constants.ONE))) {
+        if (!(x.modPow(legendreExponent, this.q).equals(Constants.ONE))) {
             return null;
         }
 
         BigInteger u = qMinusOne.shiftRight(2);
         BigInteger k = u.shiftLeft(1).add(Constants.ONE);
 
-        BigInteger Q = this.x;
+        BigInteger Q = x;
         BigInteger fourQ = Q.shiftLeft(2).mod(this.q);
 
         BigInteger U, V;
@@ -185,11 +239,22 @@ public class Field<T extends Field<?>> {
     }
 
     public BigInteger toBigNumber() {
-        return this.x;
+        return this.m.toBigInteger(this.v);
+    }
+
+    /**
+     * The canonical value as little-endian 64-bit limbs.
+     */
+    long[] toLimbs() {
+        long[] ret = new long[Montgomery.LIMBS];
+        this.m.reduce(this.v, ret);
+        return ret;
     }
 
     public byte[] toBytes() {
-        return Arrays.rightPadBytes(Arrays.reverse(this.x.toByteArray()), 32);
+        byte[] buf = new byte[32];
+        this.m.toBytes(this.v, buf);
+        return buf;
     }
 
     public String toString() {
@@ -197,15 +262,18 @@ public class Field<T extends Field<?>> {
     }
 
     public boolean isOdd() {
-        return this.x.testBit(0);
+        return this.m.isOdd(this.v);
     }
 
     public boolean isZero() {
-        return this.x.signum() == 0;
+        return Montgomery.isZero(this.v);
     }
 
     public boolean isEqualTo(Field<?> f) {
-        return this.x.compareTo(f.x) == 0;
+        if (this.m != f.m) {
+            return this.toBigNumber().compareTo(f.toBigNumber()) == 0;
+        }
+        return Montgomery.equals(this.v, f.v);
     }
 
     private static BigInteger[] lucasSequence(BigInteger p, BigInteger P, BigInteger Q, BigInteger k) {
@@ -1,80 +1,312 @@
 package org.sero.cash.superzk.crypto.ecc;
 
+import java.io.File;
+import java.io.IOException;
 import java.math.BigInteger;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 import org.sero.cash.superzk.util.Arrays;
 
+/**
+ * Fixed-base multiplication over per-segment window tables. Nothing is built
+ * in the constructor: the first use of a segment loads the generated table
+ * resource or, failing that, computes just that segment. Each segment is
+ * built at most once, even under concurrent first use.
+ *
+ * Digits are signed, in [-2^(Bits-1), 2^(Bits-1)], so a table row only holds
+ * the multiples 0..2^(Bits-1) and negative digits subtract. The window width
+ * only trades memory for additions; mult returns the same point for any width.
+ */
 public class Group implements Mult{
-    private byte[] personal;
-    private int SegNum;
-    private int SegBitsNum;
-    private int Bits;
+    public static final int MIN_WINDOW = 2;
+    public static final int MAX_WINDOW = 16;
 
-    public Map<Integer, Map<String, Point>> indexPoints;
-    public Map<Integer, Point> points;
+    /*
+     * Rough heap cost of one normalized table point: the Point plus its
+     * X, Y and T field elements (Z is the shared ONE).
+     */
+    private static final long POINT_HEAP_BYTES = 256;
+
+    private static final int COMBS = 4;
+
+    final byte[] personal;
+    final int SegNum;
+    final int SegBitsNum;
+    final int Bits;
+
+    /*
+     * tables[segment][window][digit] = digit * 2^(Bits * window) * point(segment)
+     * for digit in 0..2^(Bits-1), all normalized to Z = 1 so every add in mult
+     * is a mixed add.
+     */
+    final AtomicReferenceArray<Point[][]> tables;
+    private final AtomicReferenceArray<Point> points;
+    private final Object[] locks;
+    private volatile boolean resourceTried;
+
+    /*
+     * When set, mult(FR) goes through a comb over point(0) instead of the
+     * window tables; see comb(...).
+     */
+    private final int teeth;
+    private final int combs;
+    private volatile Comb comb;
 
     public Group(byte[] personal, int SNum, int BitNum, int CNum) {
+        this(personal, SNum, BitNum, CNum, 0, 0);
+    }
+
+    private Group(byte[] personal, int SNum, int BitNum, int CNum, int teeth, int combs) {
+        if (CNum < MIN_WINDOW || CNum > MAX_WINDOW) {
+            throw new RuntimeException("group window must be in [" + MIN_WINDOW + ", " + MAX_WINDOW + "]");
+        }
         this.personal = personal;
         this.SegNum = SNum;
         this.SegBitsNum = BitNum;
         this.Bits = CNum;
-        this.indexPoints = new HashMap<Integer, Map<String, Point>>();
-        this.points = new HashMap<Integer, Point>();
-        this.init();
+        this.tables = new AtomicReferenceArray<Point[][]>(SNum);
+        this.points = new AtomicReferenceArray<Point>(SNum);
+        this.locks = new Object[SNum];
+        for (int i = 0; i < SNum; i++) {
+            this.locks[i] = new Object();
+        }
+        this.teeth = teeth;
+        this.combs = combs;
     }
 
-    private void init() {
-        BigInteger combination = new BigInteger("2").pow(this.Bits);
-        int groupNum = (int) Math.ceil(this.SegBitsNum * 1.0 / this.Bits);
-        Field.FR fr_combination = Field.newFR(combination);
-        for (int i = 0; i < this.SegNum; i++) {
-            Point point = Point.Blake2b.findPoint(this.personal, Arrays.rightPadBytes(Arrays.reverse(BigInteger.valueOf(i).toByteArray()), 32));
-            if (point == null) {
-                throw new RuntimeException("findPoint error");
+    /**
+     * A single 256-bit segment group whose scalar mults use a Lim-Lee comb
+     * with the given teeth and combs, loaded from the generated resource when
+     * there is one; the CNum-bit window tables only back mult(BitBuffer) and
+     * are built only if that is used.
+     */
+    public static Group comb(byte[] personal, int CNum, int teeth, int combs) {
+        Comb.check(teeth, combs);
+        return new Group(personal, 1, 256, CNum, teeth, combs);
+    }
+
+    /**
+     * comb(...) with a four-comb table and window tables sized to budget.
+     */
+    public static Group comb(byte[] personal, long budget) {
+        return comb(personal, windowFor(1, 256, budget), Comb.teethFor(COMBS, budget), COMBS);
+    }
+
+    /**
+     * The widest window whose tables for SNum segments of BitNum bits fit in
+     * budget bytes of heap; MIN_WINDOW if even that does not fit.
+     */
+    public static int windowFor(int SNum, int BitNum, long budget) {
+        int window = MIN_WINDOW;
+        for (int w = MIN_WINDOW + 1; w <= MAX_WINDOW; w++) {
+            if (tableBytes(SNum, BitNum, w) <= budget) {
+                window = w;
             }
-            this.points.put(i, point);
-            Map<String, Point> points = new HashMap<String, Point>();
-            for (int j = 0; j < groupNum; j++) {
-                for (int k = 0; k < combination.intValue(); k++) {
-                    BigInteger num = BigInteger.valueOf(k).shiftLeft(this.Bits * j);
-                    String key = num.toString();
-                    Point val;
-                    if (j > 0) {
-                        String perKey = num.shiftRight(this.Bits).toString();
-                        val = points.get(perKey).mult(fr_combination);
-                    } else {
-                        val = point.mult(Field.newFR(num));
-                    }
-                    points.put(key, val);
+        }
+        return window;
+    }
+
+    /**
+     * The table budget for the named group: the system property
+     * superzk.group.budget.&lt;name&gt; if set, else def.
+     */
+    public static long budget(String name, long def) {
+        return Long.getLong("superzk.group.budget." + name, def);
+    }
+
+    static long tableBytes(int SNum, int BitNum, int window) {
+        return (long) SNum * windows(BitNum, window) * digits(window) * POINT_HEAP_BYTES;
+    }
+
+    /*
+     * One row more than the bits strictly need, for the carry out of the
+     * top signed digit.
+     */
+    private static int windows(int BitNum, int window) {
+        return BitNum / window + 1;
+    }
+
+    private static int digits(int window) {
+        return (1 << (window - 1)) + 1;
+    }
+
+    int windows() {
+        return windows(this.SegBitsNum, this.Bits);
+    }
+
+    int digits() {
+        return digits(this.Bits);
+    }
+
+    Point findBase(int segment) {
+        Point point = Point.Blake2b.findPoint(this.personal, Arrays.rightPadBytes(Arrays.reverse(BigInteger.valueOf(segment).toByteArray()), 32));
+        if (point == null) {
+            throw new RuntimeException("findPoint error");
+        }
+        return point;
+    }
+
+    /**
+     * The generator of a segment. Does not build the segment's table.
+     */
+    public Point point(int segment) {
+        Point point = this.points.get(segment);
+        if (point == null) {
+            Point[][] table = this.tables.get(segment);
+            point = table != null ? table[0][1] : this.findBase(segment);
+            this.points.compareAndSet(segment, null, point);
+        }
+        return point;
+    }
+
+    /**
+     * The window table of a segment, built on first use.
+     */
+    Point[][] table(int segment) {
+        Point[][] table = this.tables.get(segment);
+        if (table != null) {
+            return table;
+        }
+        if (!this.resourceTried) {
+            synchronized (this) {
+                if (!this.resourceTried) {
+                    TableFile.load(this);
+                    this.resourceTried = true;
                 }
             }
-            this.indexPoints.put(i, points);
+            table = this.tables.get(segment);
+            if (table != null) {
+                return table;
+            }
+        }
+        synchronized (this.locks[segment]) {
+            table = this.tables.get(segment);
+            if (table == null) {
+                table = this.build(segment);
+                this.tables.set(segment, table);
+            }
+        }
+        return table;
+    }
+
+    /**
+     * Builds every segment on the executor, one task per segment. Optional:
+     * without it segments are built on first use.
+     */
+    public CompletableFuture<Void> warmUp(ExecutorService executor) {
+        CompletableFuture<?>[] futures = new CompletableFuture<?>[this.SegNum];
+        for (int i = 0; i < this.SegNum; i++) {
+            final int segment = i;
+            futures[i] = CompletableFuture.runAsync(() -> this.table(segment), executor);
         }
+        return CompletableFuture.allOf(futures);
+    }
+
+    /**
+     * Writes the tables as the class-path resource that later constructions
+     * of an identical group load instead of recomputing. A comb group writes
+     * its comb table, the one its scalar mults use.
+     */
+    public void writeTable(File dir) throws IOException {
+        if (this.teeth != 0) {
+            TableFile.write(this, this.comb(), dir);
+            return;
+        }
+        for (int i = 0; i < this.SegNum; i++) {
+            this.table(i);
+        }
+        TableFile.write(this, dir);
+    }
+
+    private Point[][] build(int segment) {
+        int digits = this.digits();
+        int groupNum = this.windows();
+
+        Point[] flat = new Point[groupNum * digits];
+        MutablePoint base = new MutablePoint(this.point(segment));
+        MutablePoint acc = new MutablePoint();
+        for (int j = 0; j < groupNum; j++) {
+            acc.setZero();
+            for (int k = 0; k < digits; k++) {
+                flat[j * digits + k] = acc.toPoint();
+                acc.addAssign(base);
+            }
+            // 2 * 2^(Bits-1) * base, the base of the next window
+            base.set(flat[j * digits + digits - 1]).twiceAssign();
+        }
+        flat = Point.batchNormalize(flat);
+
+        Point[][] windows = new Point[groupNum][];
+        for (int j = 0; j < groupNum; j++) {
+            windows[j] = java.util.Arrays.copyOfRange(flat, j * digits, (j + 1) * digits);
+        }
+        return windows;
     }
 
     public Point mult(Field.FR fr) {
-        return this.mult(new BitBuffer(fr.toBytes(), 0, 256));
+        if (this.teeth != 0) {
+            return this.comb().mult(fr);
+        }
+        return this.mult(new BitReader(fr.toBytes()));
+    }
+
+    private Comb comb() {
+        Comb comb = this.comb;
+        if (comb == null) {
+            synchronized (this) {
+                comb = this.comb;
+                if (comb == null) {
+                    comb = new Comb(this.point(0), this.teeth, this.combs);
+                    TableFile.load(this, comb);
+                    this.comb = comb;
+                }
+            }
+        }
+        return comb;
     }
 
     public Point mult(BitBuffer bitBuffer) {
-        if (bitBuffer.bitsLength() > this.SegNum * this.SegBitsNum) {
+        return this.mult(bitBuffer.reader());
+    }
+
+    public Point mult(BitReader reader) {
+        if (reader.bitsLength() > this.SegNum * this.SegBitsNum) {
             throw new RuntimeException("bigBuffer.length > SegNum * SegBitsNum");
         }
-        int groupNum = (int) Math.ceil(this.SegBitsNum * 1.0 / this.Bits);
-        int segNum = (int) Math.ceil(bitBuffer.bitsLength() * 1.0 / this.SegBitsNum);
-        Point ret = Point.ZERO;
+        int segNum = (int) Math.ceil(reader.bitsLength() * 1.0 / this.SegBitsNum);
+        MutablePoint ret = new MutablePoint();
         for (int i = 0; i < segNum; i++) {
-            BitBuffer subBitBuf = BitBuffer.from(bitBuffer, i * this.SegBitsNum, this.SegBitsNum);
-            Map<String, Point> pints = this.indexPoints.get(i);
-            for (int j = 0; j < groupNum; j++) {
-                BigInteger key = BitBuffer.from(subBitBuf, this.Bits * j, this.Bits)
-                        .toBigInteger()
-                        .shiftLeft(this.Bits * j);
-                ret = ret.add(pints.get(key.toString()));
+            this.mult(i, reader, i * this.SegBitsNum, ret);
+        }
+        return ret.toPoint();
+    }
+
+    /*
+     * ret += (the SegBitsNum bits of reader from start) * point(segment).
+     */
+    void mult(int segment, BitReader reader, int start, MutablePoint ret) {
+        Point[][] windows = this.table(segment);
+        int groupNum = this.windows();
+        int half = 1 << (this.Bits - 1);
+        int end = start + this.SegBitsNum;
+        reader.seek(start);
+        int carry = 0;
+        for (int j = 0; j < groupNum; j++) {
+            int digit = reader.next(this.Bits, end) + carry;
+            if (digit > half) {
+                digit -= 1 << this.Bits;
+                carry = 1;
+            } else {
+                carry = 0;
+            }
+            if (digit > 0) {
+                ret.addAssign(windows[j][digit]);
+            } else if (digit < 0) {
+                ret.subAssign(windows[j][-digit]);
             }
         }
-        return ret;
+        assert (carry == 0);
     }
 }
@@ -0,0 +1,85 @@
+package org.sero.cash.superzk.crypto.ecc;
+
+import org.sero.cash.superzk.crypto.Blake;
+import org.sero.cash.superzk.crypto.Blake2s;
+import org.sero.cash.superzk.util.Arrays;
+
+/**
+ * The try-and-increment hash-to-curve behind Point.Blake2b and Point.Blake2s.
+ * One hash state serves every counter value, non-squares drop out of the
+ * decompression's sqrt_ratio before its Tonelli-Shanks loop, and the
+ * cofactor is cleared with three in-place doublings. Returns exactly the
+ * points the original per-try genPoint loops did.
+ */
+final class HashToCurve {
+    private HashToCurve() {
+    }
+
+    static Point blake2b(byte[] personal, byte[] data) {
+        assert (personal.length <= 16 && data.length == 32);
+        Blake.Blake2bHasher hasher = new Blake.Blake2bHasher(personal);
+        byte[] input = Arrays.concat(Constants.CRS, data);
+        int counter = input.length - 1;
+        byte[] buf = new byte[32];
+        for (int i = 0; true; i++) {
+            // the counter byte steps by i, so it holds data[31] + i * (i + 1) / 2
+            input[counter] += i;
+            hasher.update(input).digest(buf);
+            Point point = blake2bCandidate(buf);
+            if (point != null) {
+                return point;
+            }
+            if (i > 256) {
+                return null;
+            }
+        }
+    }
+
+    /*
+     * 8 * decode(buf), or null if buf does not decode or that is the identity.
+     */
+    static Point blake2bCandidate(byte[] buf) {
+        Point point = Point.decode(buf);
+        if (point == null) {
+            return null;
+        }
+        MutablePoint acc = clearCofactor(point);
+        return acc.isZero() ? null : acc.toPoint();
+    }
+
+    static Point blake2s(byte[] personal, byte[] data) {
+        assert (personal.length <= 8 && data.length == 64);
+        Blake2s blake2s = new Blake2s(32, new byte[8], Arrays.rightPadBytes(personal, 8));
+        byte[] input = Arrays.copy(data);
+        byte[] buf = new byte[32];
+        for (int i = 0; i < 256; i++) {
+            input[63] = (byte) (i & 0xff);
+            blake2s.reset();
+            blake2s.update(input, input.length);
+            blake2s.finish(buf);
+            Point point = blake2sCandidate(buf);
+            if (point != null) {
+                return point;
+            }
+        }
+        return null;
+    }
+
+    /*
+     * 8 * decode(buf with bits 253 and 254 cleared) for a non-identity
+     * decoded point, or null.
+     */
+    static Point blake2sCandidate(byte[] buf) {
+        buf[31] &= 0x9f;
+        Point point = Point.decode(buf);
+        // decoded points have Z = 1, so the identity is just x = 0, y = 1
+        if (point == null || (point.x.isZero() && point.y.isEqualTo(Field.FQ.ONE)) || !point.isValid()) {
+            return null;
+        }
+        return clearCofactor(point).toPoint();
+    }
+
+    private static MutablePoint clearCofactor(Point point) {
+        return new MutablePoint(point).twiceAssign().twiceAssign().twiceAssign();
+    }
+}
@@ -0,0 +1,467 @@
+package org.sero.cash.superzk.crypto.ecc;
+
+import java.math.BigInteger;
+
+/**
+ * Arithmetic modulo a prime below 2^254 on four little-endian 64-bit limbs,
+ * with every element kept in Montgomery form (a * 2^256 mod q).
+ */
+final class Montgomery {
+    static final int LIMBS = 4;
+
+    private static final long MASK = 0xffffffffL;
+    private static final BigInteger R = BigInteger.ONE.shiftLeft(64 * LIMBS);
+
+    static final Montgomery FQ = new Montgomery(Constants.FQ_MODULUS);
+    static final Montgomery FR = new Montgomery(Constants.FR_MODULUS);
+
+    final BigInteger modulus;
+    final long[] q;
+    final long[] one;
+
+    private final long inv;
+    private final long[] r2;
+    private final long[] r3;
+
+    private Montgomery(BigInteger modulus) {
+        assert (modulus.bitLength() <= 254 && modulus.testBit(0));
+        this.modulus = modulus;
+        this.q = toLimbs(modulus);
+        this.inv = BigInteger.ONE.shiftLeft(64).subtract(modulus.modInverse(BigInteger.ONE.shiftLeft(64))).longValue();
+        this.one = toLimbs(R.mod(modulus));
+        this.r2 = toLimbs(R.pow(2).mod(modulus));
+        this.r3 = toLimbs(R.pow(3).mod(modulus));
+    }
+
+    static long[] toLimbs(BigInteger x) {
+        long[] ret = new long[LIMBS];
+        for (int i = 0; i < LIMBS; i++) {
+            ret[i] = x.shiftRight(64 * i).longValue();
+        }
+        return ret;
+    }
+
+    static BigInteger fromLimbs(long[] a) {
+        byte[] buf = new byte[8 * LIMBS];
+        for (int i = 0; i < LIMBS; i++) {
+            long v = a[LIMBS - 1 - i];
+            for (int j = 0; j < 8; j++) {
+                buf[8 * i + j] = (byte) (v >>> (56 - 8 * j));
+            }
+        }
+        return new BigInteger(1, buf);
+    }
+
+    long[] fromBigInteger(BigInteger x) {
+        long[] ret = toLimbs(x.mod(this.modulus));
+        mul(ret, this.r2, ret);
+        return ret;
+    }
+
+    BigInteger toBigInteger(long[] a) {
+        long[] ret = new long[LIMBS];
+        reduce(a, ret);
+        return fromLimbs(ret);
+    }
+
+    /**
+     * Reads up to 32 little-endian bytes as an integer below 2^256 and reduces it.
+     */
+    long[] fromBytes(byte[] data) {
+        long[] ret = new long[LIMBS];
+        for (int i = 0; i < data.length; i++) {
+            ret[i >> 3] |= (data[i] & 0xffL) << ((i & 7) << 3);
+        }
+        // a * R^2 / R, valid for any a < 2^256 since R^2 mod q < q
+        mul(ret, this.r2, ret);
+        return ret;
+    }
+
+    /**
+     * Whether the little-endian bytes encode a value below the modulus, i.e.
+     * are what toBytes gives back for it.
+     */
+    boolean isCanonical(byte[] data) {
+        long[] a = new long[LIMBS];
+        for (int i = 0; i < data.length; i++) {
+            a[i >> 3] |= (data[i] & 0xffL) << ((i & 7) << 3);
+        }
+        return !geq(a, this.q);
+    }
+
+    void toBytes(long[] a, byte[] out) {
+        long[] ret = new long[LIMBS];
+        reduce(a, ret);
+        for (int i = 0; i < 8 * LIMBS; i++) {
+            out[i] = (byte) (ret[i >> 3] >>> ((i & 7) << 3));
+        }
+    }
+
+    static long mulHi(long a, long b) {
+        long a0 = a & MASK, a1 = a >>> 32;
+        long b0 = b & MASK, b1 = b >>> 32;
+        long p00 = a0 * b0;
+        long p01 = a0 * b1;
+        long p10 = a1 * b0;
+        long mid = (p00 >>> 32) + (p01 & MASK) + (p10 & MASK);
+        return a1 * b1 + (p01 >>> 32) + (p10 >>> 32) + (mid >>> 32);
+    }
+
+    private static boolean lessThan(long a, long b) {
+        return (a ^ Long.MIN_VALUE) < (b ^ Long.MIN_VALUE);
+    }
+
+    private static boolean geq(long[] a, long[] b) {
+        for (int i = LIMBS - 1; i >= 0; i--) {
+            if (a[i] != b[i]) {
+                return lessThan(b[i], a[i]);
+            }
+        }
+        return true;
+    }
+
+    private void subQ(long[] a) {
+        long borrow = 0;
+        for (int i = 0; i < LIMBS; i++) {
+            long d = a[i] - this.q[i];
+            long b1 = lessThan(a[i], this.q[i]) ? 1 : 0;
+            long r = d - borrow;
+            long b2 = lessThan(d, borrow) ? 1 : 0;
+            a[i] = r;
+            borrow = b1 | b2;
+        }
+    }
+
+    /**
+     * CIOS Montgomery multiplication: out = a * b / R mod q. out may alias a or b.
+     */
+    void mul(long[] a, long[] b, long[] out) {
+        long t0 = 0, t1 = 0, t2 = 0, t3 = 0, t4 = 0;
+        long a0 = a[0], a1 = a[1], a2 = a[2], a3 = a[3];
+        long q0 = this.q[0], q1 = this.q[1], q2 = this.q[2], q3 = this.q[3];
+        for (int i = 0; i < LIMBS; i++) {
+            long bi = b[i];
+            long lo, hi, c;
+
+            lo = a0 * bi; hi = mulHi(a0, bi);
+            lo += t0; if (lessThan(lo, t0)) hi++;
+            t0 = lo; c = hi;
+
+            lo = a1 * bi; hi = mulHi(a1, bi);
+            lo += t1; if (lessThan(lo, t1)) hi++;
+            lo += c; if (lessThan(lo, c)) hi++;
+            t1 = lo; c = hi;
+
+            lo = a2 * bi; hi = mulHi(a2, bi);
+            lo += t2; if (lessThan(lo, t2)) hi++;
+            lo += c; if (lessThan(lo, c)) hi++;
+            t2 = lo; c = hi;
+
+            lo = a3 * bi; hi = mulHi(a3, bi);
+            lo += t3; if (lessThan(lo, t3)) hi++;
+            lo += c; if (lessThan(lo, c)) hi++;
+            t3 = lo; c = hi;
+
+            t4 += c;
+
+            long m = t0 * this.inv;
+
+            lo = m * q0; hi = mulHi(m, q0);
+            lo += t0; if (lessThan(lo, t0)) hi++;
+            c = hi;
+
+            lo = m * q1; hi = mulHi(m, q1);
+            lo += t1; if (lessThan(lo, t1)) hi++;
+            lo += c; if (lessThan(lo, c)) hi++;
+            t0 = lo; c = hi;
+
+            lo = m * q2; hi = mulHi(m, q2);
+            lo += t2; if (lessThan(lo, t2)) hi++;
+            lo += c; if (lessThan(lo, c)) hi++;
+            t1 = lo; c = hi;
+
+            lo = m * q3; hi = mulHi(m, q3);
+            lo += t3; if (lessThan(lo, t3)) hi++;
+            lo += c; if (lessThan(lo, c)) hi++;
+            t2 = lo; c = hi;
+
+            t3 = t4 + c;
+            t4 = 0;
+        }
+        out[0] = t0;
+        out[1] = t1;
+        out[2] = t2;
+        out[3] = t3;
+        if (geq(out, this.q)) {
+            subQ(out);
+        }
+    }
+
+    /**
+     * Squaring with the symmetric cross products computed once, followed by a
+     * separate Montgomery reduction of the 512-bit result. Works entirely in
+     * locals so it never allocates. out may alias a.
+     */
+    void square(long[] a, long[] out) {
+        long a0 = a[0], a1 = a[1], a2 = a[2], a3 = a[3];
+        long w0, w1, w2, w3, w4, w5, w6, w7;
+        long lo, hi, c;
+
+        // cross products a[i] * a[j], i < j
+        w1 = a0 * a1; c = mulHi(a0, a1);
+
+        lo = a0 * a2; hi = mulHi(a0, a2);
+        lo += c; if (lessThan(lo, c)) hi++;
+        w2 = lo; c = hi;
+
+        lo = a0 * a3; hi = mulHi(a0, a3);
+        lo += c; if (lessThan(lo, c)) hi++;
+        w3 = lo; w4 = hi;
+
+        lo = a1 * a2; hi = mulHi(a1, a2);
+        lo += w3; if (lessThan(lo, w3)) hi++;
+        w3 = lo; c = hi;
+
+        lo = a1 * a3; hi = mulHi(a1, a3);
+        lo += w4; if (lessThan(lo, w4)) hi++;
+        lo += c; if (lessThan(lo, c)) hi++;
+        w4 = lo; w5 = hi;
+
+        lo = a2 * a3; hi = mulHi(a2, a3);
+        lo += w5; if (lessThan(lo, w5)) hi++;
+        w5 = lo; w6 = hi;
+
+        // double them
+        w7 = w6 >>> 63;
+        w6 = (w6 << 1) | (w5 >>> 63);
+        w5 = (w5 << 1) | (w4 >>> 63);
+        w4 = (w4 << 1) | (w3 >>> 63);
+        w3 = (w3 << 1) | (w2 >>> 63);
+        w2 = (w2 << 1) | (w1 >>> 63);
+        w1 = w1 << 1;
+
+        // add the squares on the diagonal
+        long d;
+        w0 = a0 * a0;
+        d = mulHi(a0, a0);
+        w1 += d; c = lessThan(w1, d) ? 1 : 0;
+        d = a1 * a1;
+        lo = w2 + d; hi = lessThan(lo, d) ? 1 : 0; w2 = lo + c; c = hi | (lessThan(w2, c) ? 1 : 0);
+        d = mulHi(a1, a1);
+        lo = w3 + d; hi = lessThan(lo, d) ? 1 : 0; w3 = lo + c; c = hi | (lessThan(w3, c) ? 1 : 0);
+        d = a2 * a2;
+        lo = w4 + d; hi = lessThan(lo, d) ? 1 : 0; w4 = lo + c; c = hi | (lessThan(w4, c) ? 1 : 0);
+        d = mulHi(a2, a2);
+        lo = w5 + d; hi = lessThan(lo, d) ? 1 : 0; w5 = lo + c; c = hi | (lessThan(w5, c) ? 1 : 0);
+        d = a3 * a3;
+        lo = w6 + d; hi = lessThan(lo, d) ? 1 : 0; w6 = lo + c; c = hi | (lessThan(w6, c) ? 1 : 0);
+        d = mulHi(a3, a3);
+        w7 = w7 + d + c;
+
+        // Montgomery reduction, one limb at a time; ext carries into the next free limb
+        long q0 = this.q[0], q1 = this.q[1], q2 = this.q[2], q3 = this.q[3];
+        long m, ext;
+
+        m = w0 * this.inv;
+        lo = m * q0; hi = mulHi(m, q0); lo += w0; if (lessThan(lo, w0)) hi++; c = hi;
+        lo = m * q1; hi = mulHi(m, q1); lo += w1; if (lessThan(lo, w1)) hi++; lo += c; if (lessThan(lo, c)) hi++; w1 = lo; c = hi;
+        lo = m * q2; hi = mulHi(m, q2); lo += w2; if (lessThan(lo, w2)) hi++; lo += c; if (lessThan(lo, c)) hi++; w2 = lo; c = hi;
+        lo = m * q3; hi = mulHi(m, q3); lo += w3; if (lessThan(lo, w3)) hi++; lo += c; if (lessThan(lo, c)) hi++; w3 = lo; c = hi;
+        w4 += c; ext = lessThan(w4, c) ? 1 : 0;
+
+        m = w1 * this.inv;
+        lo = m * q0; hi = mulHi(m, q0); lo += w1; if (lessThan(lo, w1)) hi++; c = hi;
+        lo = m * q1; hi = mulHi(m, q1); lo += w2; if (lessThan(lo, w2)) hi++; lo += c; if (lessThan(lo, c)) hi++; w2 = lo; c = hi;
+        lo = m * q2; hi = mulHi(m, q2); lo += w3; if (lessThan(lo, w3)) hi++; lo += c; if (lessThan(lo, c)) hi++; w3 = lo; c = hi;
+        lo = m * q3; hi = mulHi(m, q3); lo += w4; if (lessThan(lo, w4)) hi++; lo += c; if (lessThan(lo, c)) hi++; w4 = lo; c = hi;
+        lo = w5 + c; hi = lessThan(lo, c) ? 1 : 0; w5 = lo + ext; ext = hi | (lessThan(w5, ext) ? 1 : 0);
+
+        m = w2 * this.inv;
+        lo = m * q0; hi = mulHi(m, q0); lo += w2; if (lessThan(lo, w2)) hi++; c = hi;
+        lo = m * q1; hi = mulHi(m, q1); lo += w3; if (lessThan(lo, w3)) hi++; lo += c; if (lessThan(lo, c)) hi++; w3 = lo; c = hi;
+        lo = m * q2; hi = mulHi(m, q2); lo += w4; if (lessThan(lo, w4)) hi++; lo += c; if (lessThan(lo, c)) hi++; w4 = lo; c = hi;
+        lo = m * q3; hi = mulHi(m, q3); lo += w5; if (lessThan(lo, w5)) hi++; lo += c; if (lessThan(lo, c)) hi++; w5 = lo; c = hi;
+        lo = w6 + c; hi = lessThan(lo, c) ? 1 : 0; w6 = lo + ext; ext = hi | (lessThan(w6, ext) ? 1 : 0);
+
+        m = w3 * this.inv;
+        lo = m * q0; hi = mulHi(m, q0); lo += w3; if (lessThan(lo, w3)) hi++; c = hi;
+        lo = m * q1; hi = mulHi(m, q1); lo += w4; if (lessThan(lo, w4)) hi++; lo += c; if (lessThan(lo, c)) hi++; w4 = lo; c = hi;
+        lo = m * q2; hi = mulHi(m, q2); lo += w5; if (lessThan(lo, w5)) hi++; lo += c; if (lessThan(lo, c)) hi++; w5 = lo; c = hi;
+        lo = m * q3; hi = mulHi(m, q3); lo += w6; if (lessThan(lo, w6)) hi++; lo += c; if (lessThan(lo, c)) hi++; w6 = lo; c = hi;
+        w7 = w7 + c + ext;
+
+        out[0] = w4;
+        out[1] = w5;
+        out[2] = w6;
+        out[3] = w7;
+        if (geq(out, this.q)) {
+            subQ(out);
+        }
+    }
+
+    private void redc(long[] w, long[] out) {
+        for (int i = 0; i < LIMBS; i++) {
+            long m = w[i] * this.inv;
+            long c = 0;
+            for (int j = 0; j < LIMBS; j++) {
+                long lo = m * this.q[j];
+                long hi = mulHi(m, this.q[j]);
+                lo += w[i + j]; if (lessThan(lo, w[i + j])) hi++;
+                lo += c; if (lessThan(lo, c)) hi++;
+                w[i + j] = lo;
+                c = hi;
+            }
+            for (int k = i + LIMBS; c != 0 && k < w.length; k++) {
+                long s = w[k] + c;
+                c = lessThan(s, c) ? 1 : 0;
+                w[k] = s;
+            }
+        }
+        System.arraycopy(w, LIMBS, out, 0, LIMBS);
+        if (geq(out, this.q)) {
+            subQ(out);
+        }
+    }
+
+    /**
+     * Converts out of Montgomery form: out = a / R mod q.
+     */
+    void reduce(long[] a, long[] out) {
+        long[] w = new long[2 * LIMBS + 1];
+        System.arraycopy(a, 0, w, 0, LIMBS);
+        redc(w, out);
+    }
+
+    void add(long[] a, long[] b, long[] out) {
+        long c = 0;
+        for (int i = 0; i < LIMBS; i++) {
+            long s = a[i] + b[i];
+            long k = lessThan(s, a[i]) ? 1 : 0;
+            long s2 = s + c;
+            k |= lessThan(s2, c) ? 1 : 0;
+            out[i] = s2;
+            c = k;
+        }
+        if (geq(out, this.q)) {
+            subQ(out);
+        }
+    }
+
+    void sub(long[] a, long[] b, long[] out) {
+        long borrow = 0;
+        for (int i = 0; i < LIMBS; i++) {
+            long d = a[i] - b[i];
+            long b1 = lessThan(a[i], b[i]) ? 1 : 0;
+            long r = d - borrow;
+            long b2 = lessThan(d, borrow) ? 1 : 0;
+            out[i] = r;
+            borrow = b1 | b2;
+        }
+        if (borrow != 0) {
+            long c = 0;
+            for (int i = 0; i < LIMBS; i++) {
+                long s = out[i] + this.q[i];
+                long k = lessThan(s, out[i]) ? 1 : 0;
+                long s2 = s + c;
+                k |= lessThan(s2, c) ? 1 : 0;
+                out[i] = s2;
+                c = k;
+            }
+        }
+    }
+
+    void negate(long[] a, long[] out) {
+        if (isZero(a)) {
+            System.arraycopy(a, 0, out, 0, LIMBS);
+        } else {
+            sub(this.q, a, out);
+        }
+    }
+
+    static boolean isZero(long[] a) {
+        return (a[0] | a[1] | a[2] | a[3]) == 0;
+    }
+
+    static boolean equals(long[] a, long[] b) {
+        return a[0] == b[0] && a[1] == b[1] && a[2] == b[2] && a[3] == b[3];
+    }
+
+    boolean isOdd(long[] a) {
+        long[] ret = new long[LIMBS];
+        reduce(a, ret);
+        return (ret[0] & 1) != 0;
+    }
+
+    /**
+     * Binary extended Euclid on the Montgomery representation. For aR it yields
+     * (aR)^-1, which one multiplication by R^3 brings back to a^-1 * R.
+     * The inverse of zero is zero.
+     */
+    void invert(long[] a, long[] out) {
+        if (isZero(a)) {
+            System.arraycopy(a, 0, out, 0, LIMBS);
+            return;
+        }
+        long[] u = a.clone();
+        long[] v = this.q.clone();
+        long[] x1 = {1, 0, 0, 0};
+        long[] x2 = new long[LIMBS];
+        while (!isOne(u) && !isOne(v)) {
+            while ((u[0] & 1) == 0) {
+                shiftRight(u);
+                halve(x1);
+            }
+            while ((v[0] & 1) == 0) {
+                shiftRight(v);
+                halve(x2);
+            }
+            if (geq(u, v)) {
+                rawSub(u, v);
+                sub(x1, x2, x1);
+            } else {
+                rawSub(v, u);
+                sub(x2, x1, x2);
+            }
+        }
+        mul(isOne(u) ? x1 : x2, this.r3, out);
+    }
+
+    private static boolean isOne(long[] a) {
+        return a[0] == 1 && (a[1] | a[2] | a[3]) == 0;
+    }
+
+    private static void shiftRight(long[] a) {
+        for (int i = 0; i < LIMBS - 1; i++) {
+            a[i] = (a[i] >>> 1) | (a[i + 1] << 63);
+        }
+        a[LIMBS - 1] >>>= 1;
+    }
+
+    private void halve(long[] a) {
+        if ((a[0] & 1) != 0) {
+            // a + q stays below 2^255, so no carry out of the top limb
+            long c = 0;
+            for (int i = 0; i < LIMBS; i++) {
+                long s = a[i] + this.q[i];
+                long k = lessThan(s, a[i]) ? 1 : 0;
+                long s2 = s + c;
+                k |= lessThan(s2, c) ? 1 : 0;
+                a[i] = s2;
+                c = k;
+            }
+        }
+        shiftRight(a);
+    }
+
+    private static void rawSub(long[] a, long[] b) {
+        long borrow = 0;
+        for (int i = 0; i < LIMBS; i++) {
+            long d = a[i] - b[i];
+            long b1 = lessThan(a[i], b[i]) ? 1 : 0;
+            long r = d - borrow;
+            long b2 = lessThan(d, borrow) ? 1 : 0;
+            a[i] = r;
+            borrow = b1 | b2;
+        }
+    }
+}
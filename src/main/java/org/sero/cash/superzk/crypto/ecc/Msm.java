@@ -0,0 +1,126 @@
+package org.sero.cash.superzk.crypto.ecc;
+
+/**
+ * Bucket-method (Pippenger) multi-scalar multiplication for many variable
+ * bases. Scalars are split into signed c-bit windows; for each window every
+ * base is added once into the bucket of its digit and the buckets are folded
+ * with a running sum, so the cost is about (bits / c) * (n + 2^(c-1)) adds.
+ */
+public final class Msm {
+    private static final int MIN_WINDOW = 2;
+    private static final int MAX_WINDOW = 16;
+
+    private Msm() {
+    }
+
+    public static Point pippenger(Field.FR[] scalars, Point[] bases) {
+        assert (scalars.length == bases.length);
+        int n = bases.length;
+        if (n == 0) {
+            return Point.ZERO;
+        }
+        int c = window(n);
+        int windows = (Constants.FR_MODULUS.bitLength() + c - 1) / c + 1;
+        int[][] digits = new int[n][];
+        for (int i = 0; i < n; i++) {
+            digits[i] = recode(scalars[i].toLimbs(), c, windows);
+        }
+
+        MutablePoint[] buckets = new MutablePoint[1 << (c - 1)];
+        for (int j = 0; j < buckets.length; j++) {
+            buckets[j] = new MutablePoint();
+        }
+        boolean[] used = new boolean[buckets.length];
+        MutablePoint running = new MutablePoint();
+        MutablePoint sum = new MutablePoint();
+        MutablePoint acc = new MutablePoint();
+
+        for (int w = windows - 1; w >= 0; w--) {
+            for (int k = 0; k < c; k++) {
+                acc.twiceAssign();
+            }
+            java.util.Arrays.fill(used, false);
+            int top = -1;
+            for (int i = 0; i < n; i++) {
+                int digit = digits[i][w];
+                if (digit == 0) {
+                    continue;
+                }
+                int b = (digit > 0 ? digit : -digit) - 1;
+                if (!used[b]) {
+                    buckets[b].setZero();
+                    used[b] = true;
+                    top = Math.max(top, b);
+                }
+                if (digit > 0) {
+                    buckets[b].addAssign(bases[i]);
+                } else {
+                    buckets[b].subAssign(bases[i]);
+                }
+            }
+            // sum_j (j + 1) * bucket[j] as a suffix sum of suffix sums
+            running.setZero();
+            sum.setZero();
+            for (int b = top; b >= 0; b--) {
+                if (used[b]) {
+                    running.addAssign(buckets[b]);
+                }
+                sum.addAssign(running);
+            }
+            acc.addAssign(sum);
+        }
+        return acc.toPoint();
+    }
+
+    /**
+     * The c that minimises (bits / c) * (n + 2^(c-1)).
+     */
+    static int window(int n) {
+        int bits = Constants.FR_MODULUS.bitLength();
+        int best = MIN_WINDOW;
+        double bestCost = Double.MAX_VALUE;
+        for (int c = MIN_WINDOW; c <= MAX_WINDOW; c++) {
+            double cost = Math.ceil((double) bits / c) * (n + (1 << (c - 1)));
+            if (cost < bestCost) {
+                bestCost = cost;
+                best = c;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Signed c-bit digits in [-2^(c-1), 2^(c-1)], least significant first.
+     */
+    static int[] recode(long[] k, int c, int windows) {
+        int[] digits = new int[windows];
+        int mask = (1 << c) - 1;
+        int half = 1 << (c - 1);
+        int carry = 0;
+        for (int w = 0; w < windows; w++) {
+            int digit = bits(k, w * c, mask) + carry;
+            if (digit > half) {
+                digit -= 1 << c;
+                carry = 1;
+            } else {
+                carry = 0;
+            }
+            digits[w] = digit;
+        }
+        assert (carry == 0);
+        return digits;
+    }
+
+    private static int bits(long[] k, int offset, int mask) {
+        int limb = offset >>> 6;
+        if (limb >= k.length) {
+            return 0;
+        }
+        int shift = offset & 63;
+        long v = k[limb] >>> shift;
+        if (shift != 0 && limb + 1 < k.length) {
+            v |= k[limb + 1] << (64 - shift);
+        }
+        return (int) (v & mask);
+    }
+}
@@ -0,0 +1,148 @@
+package org.sero.cash.superzk.crypto.ecc;
+
+/**
+ * A field element over FQ that is updated in place. Meant for accumulators in
+ * hot loops where the immutable {@link Field.FQ} would allocate on every step.
+ */
+public final class MutableFQ {
+    private static final Montgomery M = Montgomery.FQ;
+
+    final long[] v = new long[Montgomery.LIMBS];
+
+    public MutableFQ() {
+    }
+
+    public MutableFQ(Field.FQ val) {
+        this.set(val);
+    }
+
+    public MutableFQ set(Field.FQ val) {
+        System.arraycopy(val.v, 0, this.v, 0, Montgomery.LIMBS);
+        return this;
+    }
+
+    public MutableFQ set(MutableFQ val) {
+        System.arraycopy(val.v, 0, this.v, 0, Montgomery.LIMBS);
+        return this;
+    }
+
+    public MutableFQ setZero() {
+        java.util.Arrays.fill(this.v, 0);
+        return this;
+    }
+
+    public MutableFQ setOne() {
+        System.arraycopy(M.one, 0, this.v, 0, Montgomery.LIMBS);
+        return this;
+    }
+
+    public MutableFQ addAssign(MutableFQ val) {
+        M.add(this.v, val.v, this.v);
+        return this;
+    }
+
+    public MutableFQ addAssign(Field.FQ val) {
+        M.add(this.v, val.v, this.v);
+        return this;
+    }
+
+    public MutableFQ subAssign(MutableFQ val) {
+        M.sub(this.v, val.v, this.v);
+        return this;
+    }
+
+    public MutableFQ subAssign(Field.FQ val) {
+        M.sub(this.v, val.v, this.v);
+        return this;
+    }
+
+    public MutableFQ mulAssign(MutableFQ val) {
+        M.mul(this.v, val.v, this.v);
+        return this;
+    }
+
+    public MutableFQ mulAssign(Field.FQ val) {
+        M.mul(this.v, val.v, this.v);
+        return this;
+    }
+
+    public MutableFQ squareAssign() {
+        M.square(this.v, this.v);
+        return this;
+    }
+
+    public MutableFQ twiceAssign() {
+        M.add(this.v, this.v, this.v);
+        return this;
+    }
+
+    public MutableFQ negateAssign() {
+        M.negate(this.v, this.v);
+        return this;
+    }
+
+    public MutableFQ invertAssign() {
+        M.invert(this.v, this.v);
+        return this;
+    }
+
+    /**
+     * this = a + b
+     */
+    public MutableFQ setAdd(MutableFQ a, MutableFQ b) {
+        M.add(a.v, b.v, this.v);
+        return this;
+    }
+
+    /**
+     * this = a - b
+     */
+    public MutableFQ setSub(MutableFQ a, MutableFQ b) {
+        M.sub(a.v, b.v, this.v);
+        return this;
+    }
+
+    /**
+     * this = a * b
+     */
+    public MutableFQ setMul(MutableFQ a, MutableFQ b) {
+        M.mul(a.v, b.v, this.v);
+        return this;
+    }
+
+    /**
+     * this = a * b
+     */
+    public MutableFQ setMul(MutableFQ a, Field.FQ b) {
+        M.mul(a.v, b.v, this.v);
+        return this;
+    }
+
+    /**
+     * this = a^2
+     */
+    public MutableFQ setSquare(MutableFQ a) {
+        M.square(a.v, this.v);
+        return this;
+    }
+
+    public boolean isZero() {
+        return Montgomery.isZero(this.v);
+    }
+
+    public boolean isEqualTo(MutableFQ val) {
+        return Montgomery.equals(this.v, val.v);
+    }
+
+    public boolean isEqualTo(Field.FQ val) {
+        return Montgomery.equals(this.v, val.v);
+    }
+
+    public Field.FQ toFQ() {
+        return new Field.FQ(this.v.clone());
+    }
+
+    public String toString() {
+        return this.toFQ().toString();
+    }
+}
@@ -0,0 +1,138 @@
+package org.sero.cash.superzk.crypto.ecc;
+
+/**
+ * A curve point in extended coordinates that is updated in place. The scratch
+ * registers are owned by the instance, so after construction addAssign and
+ * twiceAssign never allocate. Not thread-safe.
+ */
+public final class MutablePoint {
+    final MutableFQ x = new MutableFQ();
+    final MutableFQ y = new MutableFQ();
+    final MutableFQ z = new MutableFQ();
+    final MutableFQ t = new MutableFQ();
+
+    private final MutableFQ a = new MutableFQ();
+    private final MutableFQ b = new MutableFQ();
+    private final MutableFQ c = new MutableFQ();
+    private final MutableFQ d = new MutableFQ();
+    private final MutableFQ e = new MutableFQ();
+    private final MutableFQ f = new MutableFQ();
+    private final MutableFQ g = new MutableFQ();
+    private final MutableFQ h = new MutableFQ();
+
+    public MutablePoint() {
+        this.setZero();
+    }
+
+    public MutablePoint(Point point) {
+        this.set(point);
+    }
+
+    public MutablePoint setZero() {
+        this.x.setZero();
+        this.y.setOne();
+        this.z.setOne();
+        this.t.setZero();
+        return this;
+    }
+
+    public MutablePoint set(Point point) {
+        this.x.set(point.x);
+        this.y.set(point.y);
+        this.z.set(point.z);
+        this.t.set(point.t);
+        return this;
+    }
+
+    public MutablePoint set(MutablePoint point) {
+        this.x.set(point.x);
+        this.y.set(point.y);
+        this.z.set(point.z);
+        this.t.set(point.t);
+        return this;
+    }
+
+    public MutablePoint addAssign(Point point) {
+        this.a.setMul(this.x, point.x);
+        this.b.setMul(this.y, point.y);
+        this.c.setMul(this.t, point.t).mulAssign(Point.ECC_D);
+        this.setD(point);
+        this.e.set(point.x).addAssign(point.y);
+        return this.finishAdd();
+    }
+
+    /**
+     * this -= point, using -(X:Y:Z:T) = (-X:Y:Z:-T).
+     */
+    public MutablePoint subAssign(Point point) {
+        this.a.setMul(this.x, point.x).negateAssign();
+        this.b.setMul(this.y, point.y);
+        this.c.setMul(this.t, point.t).mulAssign(Point.ECC_D).negateAssign();
+        this.setD(point);
+        this.e.set(point.y).subAssign(point.x);
+        return this.finishAdd();
+    }
+
+    public MutablePoint addAssign(MutablePoint point) {
+        this.e.setAdd(point.x, point.y);
+        this.a.setMul(this.x, point.x);
+        this.b.setMul(this.y, point.y);
+        this.c.setMul(this.t, point.t).mulAssign(Point.ECC_D);
+        this.d.setMul(this.z, point.z);
+        return this.finishAdd();
+    }
+
+    /*
+     * D = Z1*Z2, or just Z1 when the other point is at Z = 1.
+     */
+    private void setD(Point point) {
+        if (point.normalized) {
+            this.d.set(this.z);
+        } else {
+            this.d.setMul(this.z, point.z);
+        }
+    }
+
+    /*
+     * add-2008-hwcd, with A..D and (X2 + Y2) already in a..e.
+     */
+    private MutablePoint finishAdd() {
+        this.e.mulAssign(this.h.setAdd(this.x, this.y)).subAssign(this.a).subAssign(this.b);
+        this.f.setSub(this.d, this.c);
+        this.g.setAdd(this.d, this.c);
+        this.h.setMul(this.a, Point.ECC_A);
+        this.h.setSub(this.b, this.h);
+        return this.finish();
+    }
+
+    /**
+     * dbl-2008-hwcd.
+     */
+    public MutablePoint twiceAssign() {
+        this.a.setSquare(this.x);
+        this.b.setSquare(this.y);
+        this.c.setSquare(this.z).twiceAssign();
+        this.d.setMul(this.a, Point.ECC_A);
+        this.e.setAdd(this.x, this.y).squareAssign().subAssign(this.a).subAssign(this.b);
+        this.g.setAdd(this.d, this.b);
+        this.f.setSub(this.g, this.c);
+        this.h.setSub(this.d, this.b);
+        return this.finish();
+    }
+
+    private MutablePoint finish() {
+        this.x.setMul(this.e, this.f);
+        this.y.setMul(this.g, this.h);
+        this.t.setMul(this.e, this.h);
+        this.z.setMul(this.f, this.g);
+        return this;
+    }
+
+    public boolean isZero() {
+        return this.x.isZero() && this.y.isEqualTo(this.z);
+    }
+
+    public Point toPoint() {
+        return new Point(this.x.toFQ(), this.y.toFQ(), this.z.toFQ(), this.t.toFQ());
+    }
+}
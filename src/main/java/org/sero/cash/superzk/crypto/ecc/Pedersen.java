@@ -0,0 +1,103 @@
+package org.sero.cash.superzk.crypto.ecc;
+
+/**
+ * Incremental Pedersen commitment over a Group: the same point as
+ * group.mult(new BitReader(concat(fields...))), fed one field at a time.
+ * Only the segment being filled is buffered; each segment is multiplied into
+ * the accumulator as soon as it is complete, so the concatenated blob is
+ * never built.
+ *
+ * Not thread-safe. finish() resets the engine, so one instance can be reused
+ * for any number of commitments.
+ */
+public final class Pedersen {
+    private final Group group;
+    private final byte[] segment;
+    private final BitReader reader;
+    private final MutablePoint acc = new MutablePoint();
+    private int index;
+    private int filled;
+
+    public Pedersen(Group group) {
+        if (group.SegBitsNum % 8 != 0) {
+            throw new RuntimeException("pedersen needs byte aligned group segments");
+        }
+        this.group = group;
+        this.segment = new byte[group.SegBitsNum / 8];
+        this.reader = new BitReader(this.segment);
+    }
+
+    public Pedersen update(byte[] data) {
+        return this.update(data, 0, data.length);
+    }
+
+    public Pedersen update(byte[] data, int off, int len) {
+        while (len > 0) {
+            if (this.index >= this.group.SegNum) {
+                throw new RuntimeException("pedersen input longer than SegNum * SegBitsNum");
+            }
+            int n = Math.min(len, this.segment.length - this.filled);
+            System.arraycopy(data, off, this.segment, this.filled, n);
+            this.filled += n;
+            off += n;
+            len -= n;
+            if (this.filled == this.segment.length) {
+                this.flush();
+            }
+        }
+        return this;
+    }
+
+    /**
+     * Commits to the 32-byte encoding of point.
+     */
+    public Pedersen update(Point point) {
+        return this.update(point.toBytes());
+    }
+
+    /**
+     * Commits to the 32-byte little-endian encoding of val.
+     */
+    public Pedersen update(Field.FR val) {
+        return this.update(val.toBytes());
+    }
+
+    private void flush() {
+        java.util.Arrays.fill(this.segment, this.filled, this.segment.length, (byte) 0);
+        this.group.mult(this.index, this.reader, 0, this.acc);
+        this.index++;
+        this.filled = 0;
+    }
+
+    /**
+     * The commitment to everything fed since the last finish or reset, not
+     * normalized. Resets the engine.
+     */
+    public Point finish() {
+        if (this.filled > 0) {
+            this.flush();
+        }
+        Point ret = this.acc.toPoint();
+        this.reset();
+        return ret;
+    }
+
+    public Pedersen reset() {
+        this.acc.setZero();
+        this.index = 0;
+        this.filled = 0;
+        return this;
+    }
+
+    /**
+     * Finishes every engine and normalizes the commitments with a single
+     * field inversion.
+     */
+    public static Point[] finish(Pedersen... engines) {
+        Point[] ret = new Point[engines.length];
+        for (int i = 0; i < engines.length; i++) {
+            ret[i] = engines[i].finish();
+        }
+        return Point.batchNormalize(ret);
+    }
+}
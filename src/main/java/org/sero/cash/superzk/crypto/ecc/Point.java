@@ -1,113 +1,184 @@
 package org.sero.cash.superzk.crypto.ecc;
 
 
-import java.math.BigInteger;
-
 import org.sero.cash.superzk.crypto.Blake;
 import org.sero.cash.superzk.json.HexType;
 import org.sero.cash.superzk.util.Arrays;
 import org.sero.cash.superzk.util.HexUtils;
 
+/**
+ * An immutable curve point, safe to share between threads. The compressed
+ * encoding is computed at most once per point (or kept from fromBytes when
+ * the input was canonical); toBytes hands out a fresh copy of it each call.
+ */
 public class Point implements Mult, HexType {
     public static Field.FQ ECC_A = Field.newFQ(Constants.ECC_A);
     public static Field.FQ ECC_D = Field.newFQ(Constants.ECC_D);
-    public static Point ZERO = new Point(Field.FQ.ZERO, Field.FQ.ONE, Field.FQ.ONE);
-
-    private Field.FQ x;
-    private Field.FQ y;
-    private Field.FQ z;
-
+    public static Point ZERO = new Point(Field.FQ.ZERO, Field.FQ.ONE, Field.FQ.ONE, Field.FQ.ZERO);
+
+    private static final int WNAF_WINDOW = 5;
+    private static final int PIPPENGER_THRESHOLD = 32;
+
+    /*
+     * Extended twisted Edwards coordinates: x = X/Z, y = Y/Z and X*Y = Z*T.
+     */
+    final Field.FQ x;
+    final Field.FQ y;
+    final Field.FQ z;
+    final Field.FQ t;
+    /*
+     * Z = 1, so adds against this point skip the Z1*Z2 product.
+     */
+    final boolean normalized;
+    /*
+     * Memoized toBytes; a benign race may compute it twice.
+     */
+    private volatile byte[] encoded;
+    /*
+     * Memoized isInSubgroup: 0 unknown, 1 in the subgroup, -1 not.
+     */
+    private volatile byte subgroup;
+
+    /**
+     * Builds a point from projective (X:Y:Z) coordinates.
+     */
     public Point(Field.FQ x, Field.FQ y, Field.FQ z) {
+        if (z.isEqualTo(Field.FQ.ONE)) {
+            this.x = x;
+            this.y = y;
+            this.z = z;
+            this.t = x.mul(y);
+            this.normalized = true;
+        } else {
+            this.x = x.mul(z);
+            this.y = y.mul(z);
+            this.z = z.square();
+            this.t = x.mul(y);
+            this.normalized = this.z.isEqualTo(Field.FQ.ONE);
+        }
+    }
+
+    Point(Field.FQ x, Field.FQ y, Field.FQ z, Field.FQ t) {
         this.x = x;
         this.y = y;
         this.z = z;
+        this.t = t;
+        this.normalized = z.isEqualTo(Field.FQ.ONE);
     }
 
+    /**
+     * Unified addition (add-2008-hwcd); complete on this curve, so it also
+     * covers doubling and the neutral element. When either side has Z = 1
+     * the Z1*Z2 product is skipped (mixed addition).
+     */
     public Point add(Point point) {
-        Field.FQ x1 = this.x;
-        Field.FQ y1 = this.y;
-        Field.FQ z1 = this.z;
-
-        Field.FQ x2 = point.x;
-        Field.FQ y2 = point.y;
-        Field.FQ z2 = point.z;
-
-        Field.FQ c = x1.mul(x2);
-        Field.FQ d = y1.mul(y2);
-        Field.FQ e = Point.ECC_D.mul(c).mul(d);
-
-        if (z1.isEqualTo(Field.FQ.ONE) && z2.isEqualTo(Field.FQ.ONE)) {
-            return new Point(
-                    Field.FQ.ONE.sub(e).mul(x1.add(y1).mul(x2.add(y2)).sub(c).sub(d)),
-                    Field.FQ.ONE.add(e).mul(d.sub(Point.ECC_A.mul(c))),
-                    Field.FQ.ONE.sub(e.square())
-            );
-        } else {
-            if (z2.isEqualTo(Field.FQ.ONE)) {
-                Field.FQ b = z1.square();
-                Field.FQ f = b.sub(e);
-                Field.FQ g = b.add(e);
-
-                return new Point(
-                        z1.mul(f).mul(x1.add(y1).mul(x2.add(y2)).sub(c).sub(d)),
-                        z1.mul(g).mul(d.sub(Point.ECC_A.mul(c))),
-                        f.mul(g)
-                );
-            } else {
-                Field.FQ a = z1.mul(z2);
-                Field.FQ b = a.square();
-                Field.FQ f = b.sub(e);
-                Field.FQ g = b.add(e);
-
-                return new Point(
-                        a.mul(f).mul(x1.add(y1).mul(x2.add(y2)).sub(c).sub(d)),
-                        a.mul(g).mul(d.sub(Point.ECC_A.mul(c))),
-                        f.mul(g)
-                );
-            }
-        }
+        Field.FQ a = this.x.mul(point.x);
+        Field.FQ b = this.y.mul(point.y);
+        Field.FQ c = Point.ECC_D.mul(this.t).mul(point.t);
+        Field.FQ d = point.normalized ? this.z : (this.normalized ? point.z : this.z.mul(point.z));
+        Field.FQ e = this.x.add(this.y).mul(point.x.add(point.y)).sub(a).sub(b);
+        Field.FQ f = d.sub(c);
+        Field.FQ g = d.add(c);
+        Field.FQ h = b.sub(Point.ECC_A.mul(a));
+
+        return new Point(e.mul(f), g.mul(h), f.mul(g), e.mul(h));
     }
 
+    /**
+     * -(x, y) = (-x, y); no scalar mult needed.
+     */
+    public Point negate() {
+        return new Point(this.x.negate(), this.y, this.z, this.t.negate());
+    }
+
+    /**
+     * Dedicated doubling (dbl-2008-hwcd).
+     */
     public Point twice() {
-        Field.FQ b = this.x.add(this.y).square();
-        Field.FQ c = this.x.square();
-        Field.FQ d = this.y.square();
-        Field.FQ e = Point.ECC_A.mul(c);
-        Field.FQ f = e.add(d);
-
-        if (this.z.isEqualTo(Field.FQ.ONE)) {
-            return new Point(
-                    b.sub(c).sub(d).mul(f.sub(Field.FQ.TWO)),
-                    f.mul(e.sub(d)),
-                    f.square().sub(f.mul(Field.FQ.TWO))
-            );
-        } else {
-            Field.FQ h = this.z.square();
-            Field.FQ j = f.sub(h.mul(Field.FQ.TWO));
-            return new Point(
-                    b.sub(c).sub(d).mul(j),
-                    f.mul(e.sub(d)),
-                    f.mul(j)
-            );
-        }
+        Field.FQ a = this.x.square();
+        Field.FQ b = this.y.square();
+        Field.FQ zz = this.z.square();
+        Field.FQ c = zz.add(zz);
+        Field.FQ d = Point.ECC_A.mul(a);
+        Field.FQ e = this.x.add(this.y).square().sub(a).sub(b);
+        Field.FQ g = d.add(b);
+        Field.FQ f = g.sub(c);
+        Field.FQ h = d.sub(b);
+
+        return new Point(e.mul(f), g.mul(h), f.mul(g), e.mul(h));
     }
 
     public Point mult(Field.FR val) {
-        BigInteger scalar = val.toBigNumber();
-        Point p = this;
-        Point a = Point.ZERO;
+        return this.mult(val, WNAF_WINDOW);
+    }
+
+    /**
+     * Variable-base multiplication over the width-w NAF of the scalar, with a
+     * table of the 2^(w-2) odd multiples of this point.
+     */
+    public Point mult(Field.FR val, int window) {
+        Wnaf.checkWindow(window);
+        byte[] naf = Wnaf.recode(val, window);
+        if (naf.length == 0) {
+            return Point.ZERO;
+        }
+        Point[] table = Wnaf.oddMultiples(this, window);
+        MutablePoint acc = new MutablePoint();
+        for (int i = naf.length - 1; i >= 0; i--) {
+            acc.twiceAssign();
+            Wnaf.addDigit(acc, table, naf[i]);
+        }
+        return acc.toPoint();
+    }
 
-        while (scalar.signum() != 0) {
-            if (scalar.testBit(0)) {
-                a = a.add(p);
+    /**
+     * Computes sum(scalars[i] * bases[i]) in one pass. Point bases share a
+     * single doubling chain over their interleaved wNAF digits (Straus/Shamir),
+     * or go through {@link Msm#pippenger} once there are many of them; any
+     * other Mult, such as a Group with its fixed-base tables, multiplies on its
+     * own and is added in at the end.
+     */
+    public static Point multiScalar(Field.FR[] scalars, Mult[] bases) {
+        assert (scalars.length == bases.length);
+        MutablePoint fixed = new MutablePoint();
+        int count = 0;
+        for (int i = 0; i < bases.length; i++) {
+            if (bases[i] instanceof Point) {
+                count++;
+            } else {
+                fixed.addAssign(bases[i].mult(scalars[i]));
+            }
+        }
+        Field.FR[] ks = new Field.FR[count];
+        Point[] ps = new Point[count];
+        for (int i = 0, j = 0; i < bases.length; i++) {
+            if (bases[i] instanceof Point) {
+                ks[j] = scalars[i];
+                ps[j++] = (Point) bases[i];
             }
-            scalar = scalar.shiftRight(1);
-            if (scalar.signum() == 0) {
-                break;
+        }
+        if (count >= PIPPENGER_THRESHOLD) {
+            return fixed.addAssign(Msm.pippenger(ks, ps)).toPoint();
+        }
+
+        byte[][] nafs = new byte[count][];
+        Point[][] tables = new Point[count][];
+        int len = 0;
+        for (int i = 0; i < count; i++) {
+            nafs[i] = Wnaf.recode(ks[i], WNAF_WINDOW);
+            tables[i] = Wnaf.oddMultiples(ps[i], WNAF_WINDOW);
+            len = Math.max(len, nafs[i].length);
+        }
+        MutablePoint acc = new MutablePoint();
+        for (int j = len - 1; j >= 0; j--) {
+            acc.twiceAssign();
+            for (int i = 0; i < count; i++) {
+                if (j < nafs[i].length) {
+                    Wnaf.addDigit(acc, tables[i], nafs[i][j]);
+                }
             }
-            p = p.twice();
         }
-        return a;
+        return acc.addAssign(fixed).toPoint();
     }
 
     public boolean isValid() {
@@ -126,6 +197,20 @@ public class Point implements Mult, HexType {
         }
     }
 
+    /**
+     * Whether l * this is the identity, l the prime order of the base point
+     * subgroup; false for points with a small-order component. Computed as
+     * (l - 1) * this + this, since FR scalars are reduced mod l.
+     */
+    public boolean isInSubgroup() {
+        byte subgroup = this.subgroup;
+        if (subgroup == 0) {
+            subgroup = this.mult(Field.FR.ONE.negate()).add(this).isZero() ? (byte) 1 : (byte) -1;
+            this.subgroup = subgroup;
+        }
+        return subgroup > 0;
+    }
+
     public boolean isEqualTo(Point point) {
         if (this.x.mul(point.z).isEqualTo(this.z.mul(point.x))) {
             if (this.y.mul(point.z).isEqualTo(this.z.mul(point.y))) {
@@ -140,10 +225,27 @@ public class Point implements Mult, HexType {
     }
 
     public byte[] toBytes() {
-        Field.FQ inv_z = this.z.invert();
-        Field.FQ x = this.x.mul(inv_z);
-        Field.FQ y = this.y.mul(inv_z);
+        return this.encoded().clone();
+    }
 
+    /*
+     * The memoized encoding itself; callers must not modify it.
+     */
+    byte[] encoded() {
+        byte[] encoded = this.encoded;
+        if (encoded == null) {
+            if (this.normalized) {
+                encoded = encode(this.x, this.y);
+            } else {
+                Field.FQ inv_z = this.z.invert();
+                encoded = encode(this.x.mul(inv_z), this.y.mul(inv_z));
+            }
+            this.encoded = encoded;
+        }
+        return encoded;
+    }
+
+    private static byte[] encode(Field.FQ x, Field.FQ y) {
         byte[] buf = y.toBytes();
         if (x.isOdd()) {
             buf[31] |= 1 << 7;
@@ -151,6 +253,58 @@ public class Point implements Mult, HexType {
         return buf;
     }
 
+    /**
+     * Rescales every point to Z = 1 with one shared field inversion, so that
+     * later toBytes calls on them skip their own inversion.
+     */
+    public static Point[] batchNormalize(Point... points) {
+        Field.FQ[] zs = new Field.FQ[points.length];
+        for (int i = 0; i < points.length; i++) {
+            zs[i] = points[i].z;
+        }
+        Field.FQ[] invs = Field.batchInvert(zs);
+        Point[] ret = new Point[points.length];
+        for (int i = 0; i < points.length; i++) {
+            Point p = points[i];
+            if (p.normalized) {
+                ret[i] = p;
+            } else {
+                ret[i] = new Point(p.x.mul(invs[i]), p.y.mul(invs[i]), Field.FQ.ONE, p.t.mul(invs[i]));
+                ret[i].encoded = p.encoded;
+            }
+        }
+        return ret;
+    }
+
+    /**
+     * toBytes of every point, sharing one field inversion among those whose
+     * encoding is not memoized yet; memoizes it on them.
+     */
+    public static byte[][] batchToBytes(Point... points) {
+        int missing = 0;
+        for (Point point : points) {
+            if (point.encoded == null && !point.normalized) {
+                missing++;
+            }
+        }
+        Point[] pending = new Point[missing];
+        for (int i = 0, j = 0; i < points.length; i++) {
+            if (points[i].encoded == null && !points[i].normalized) {
+                pending[j++] = points[i];
+            }
+        }
+        Point[] affine = batchNormalize(pending);
+        for (int j = 0; j < pending.length; j++) {
+            pending[j].encoded = encode(affine[j].x, affine[j].y);
+        }
+
+        byte[][] ret = new byte[points.length][];
+        for (int i = 0; i < points.length; i++) {
+            ret[i] = points[i].toBytes();
+        }
+        return ret;
+    }
+
     public String toString() {
         byte[] data = this.toBytes();
         return HexUtils.toHex(data);
@@ -160,7 +314,25 @@ public class Point implements Mult, HexType {
         return Point.fromBytes(HexUtils.toBytes(hex));
     }
 
+    /**
+     * Decodes a compressed point, or returns null. Clears the sign bit of
+     * data. Cached when a global PointDecoder is set.
+     */
     public static Point fromBytes(byte[] data) {
+        PointDecoder decoder = PointDecoder.global();
+        if (decoder == null) {
+            return decode(data);
+        }
+        Point point = decoder.decode(data);
+        data[31] &= ~0x80;
+        return point;
+    }
+
+    /*
+     * fromBytes without the cache, for encodings that are unlikely to repeat
+     * (signature nonces, hash-to-curve candidates).
+     */
+    static Point decode(byte[] data) {
         assert (data.length == 32);
         int sign = (data[31] >> 7) & 0x1;
         data[31] &= ~0x80;
@@ -168,8 +340,7 @@ public class Point implements Mult, HexType {
         Field.FQ v = Field.newFQ(data);
         Field.FQ vv = v.mul(v);
         Field.FQ vvd = Point.ECC_D.mul(vv);
-        Field.FQ u2 = vv.sub(Field.FQ.ONE).mul(vvd.sub(Point.ECC_A).invert());
-        Field.FQ st = u2.sqrt();
+        Field.FQ st = Sqrt.ratio(vv.sub(Field.FQ.ONE), vvd.sub(Point.ECC_A));
         if (st == null) {
             return null;
         }
@@ -178,7 +349,14 @@ public class Point implements Mult, HexType {
         if (st.isOdd() != (sign != 0)) {
             u = Field.FQ.ZERO.sub(st);
         }
-        return new Point(u, v, Field.FQ.ONE);
+        Point point = new Point(u, v, Field.FQ.ONE);
+        // the input is the encoding unless y was not reduced or a zero x came signed
+        if (Montgomery.FQ.isCanonical(data) && (sign == 0 || !u.isZero())) {
+            byte[] encoded = data.clone();
+            encoded[31] |= sign << 7;
+            point.encoded = encoded;
+        }
+        return point;
     }
 
     public static Point randomPt() {
@@ -191,62 +369,22 @@ public class Point implements Mult, HexType {
         }
     }
 
-    private static Field.FR scalar = Field.newFR(8);
-
     public static class Blake2b {
 
         public static Point genPoint(byte[] personal, byte[] data) {
             data = Arrays.concat(Constants.CRS, data);
-            byte[] buf = Blake.blake2b(personal, data);
-            Point point = Point.fromBytes(buf);
-            if (point != null) {
-                point = point.mult(scalar);
-                if (!point.isEqualTo(Point.ZERO)) {
-                    return point;
-                }
-            }
-            return null;
+            return HashToCurve.blake2bCandidate(Blake.blake2b(personal, data));
         }
 
         public static Point findPoint(byte[] personal, byte[] data) {
-            assert (personal.length <= 16 && data.length == 32);
-            byte[] temp = Arrays.copy(data);
-            for (int i = 0; true; i++) {
-                temp[31] += i;
-                Point point = Blake2b.genPoint(personal, temp);
-                if (point != null) {
-                    return point;
-                }
-                if (i > 256) {
-                    return null;
-                }
-            }
+            return HashToCurve.blake2b(personal, data);
         }
     }
 
     public static class Blake2s {
 
-        private static Point genPoint(byte[] personal, byte[] data) {
-            byte[] buf = Blake.blake2s(personal, data);
-            buf[31] &= 0x9f;
-            Point point = Point.fromBytes(buf);
-            if (point != null && !point.isZero() && point.isValid()) {
-                return point.mult(scalar);
-            }
-            return null;
-        }
-
         public static Point findPoint(byte[] personal, byte[] data) {
-            assert (personal.length <= 8 && data.length == 64);
-            byte[] temp = Arrays.copy(data);
-            for (int i = 0; i < 256; i++) {
-                temp[63] = (byte) (i & 0xff);
-                Point point = genPoint(personal, temp);
-                if (point != null) {
-                    return point;
-                }
-            }
-            return null;
+            return HashToCurve.blake2s(personal, data);
         }
     }
 }
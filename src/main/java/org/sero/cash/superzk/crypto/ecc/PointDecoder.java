@@ -0,0 +1,80 @@
+package org.sero.cash.superzk.crypto.ecc;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.sero.cash.superzk.util.LruCache;
+
+/**
+ * Point decompression behind a bounded LRU cache keyed by the 32 encoded
+ * bytes, for callers that decode the same points over and over. Points are
+ * immutable, so cached instances are shared freely; encodings that do not
+ * decode are not cached.
+ *
+ * Point.fromBytes goes through the global decoder when one is set, either
+ * with setGlobal or with -Dsuperzk.point.cache=&lt;entries&gt;; by default
+ * there is none.
+ */
+public class PointDecoder {
+    private static volatile PointDecoder global = fromProperty();
+
+    private final LruCache<ByteBuffer, Point> cache;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    public PointDecoder(int capacity) {
+        this.cache = new LruCache<ByteBuffer, Point>(capacity);
+    }
+
+    private static PointDecoder fromProperty() {
+        int capacity = Integer.getInteger("superzk.point.cache", 0);
+        return capacity > 0 ? new PointDecoder(capacity) : null;
+    }
+
+    public static PointDecoder global() {
+        return global;
+    }
+
+    /**
+     * Sets the decoder Point.fromBytes uses; null turns caching off.
+     */
+    public static void setGlobal(PointDecoder decoder) {
+        global = decoder;
+    }
+
+    /**
+     * The point encoded by data, or null. Unlike Point.fromBytes, leaves
+     * data untouched.
+     */
+    public Point decode(byte[] data) {
+        assert (data.length == 32);
+        ByteBuffer key = ByteBuffer.wrap(data.clone());
+        Point point = this.cache.get(key);
+        if (point != null) {
+            this.hits.incrementAndGet();
+            return point;
+        }
+        this.misses.incrementAndGet();
+        point = Point.decode(data.clone());
+        if (point != null) {
+            this.cache.put(key, point);
+        }
+        return point;
+    }
+
+    public long hits() {
+        return this.hits.get();
+    }
+
+    public long misses() {
+        return this.misses.get();
+    }
+
+    public int size() {
+        return this.cache.size();
+    }
+
+    public void clear() {
+        this.cache.clear();
+    }
+}
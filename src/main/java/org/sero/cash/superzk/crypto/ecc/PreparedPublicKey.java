@@ -0,0 +1,107 @@
+package org.sero.cash.superzk.crypto.ecc;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.sero.cash.superzk.util.LruCache;
+
+/**
+ * A public key prepared for repeated verification. The encoding, the zero and
+ * curve checks and a normalized wNAF table of odd multiples are computed
+ * once, and after HOT_USES mults (or straight away when asked for) the key
+ * also gets a comb table, from which mult runs at fixed-base speed.
+ *
+ * cached(...) shares prepared keys through an LRU cache keyed by encoding,
+ * sized by the system property superzk.pk.cache (default 256 keys).
+ */
+public class PreparedPublicKey implements Mult {
+    private static final int WINDOW = 6;
+    private static final int HOT_USES = 16;
+    private static final int COMB_TEETH = 6;
+    private static final int COMB_COMBS = 2;
+
+    private static final LruCache<ByteBuffer, PreparedPublicKey> CACHE =
+            new LruCache<ByteBuffer, PreparedPublicKey>(Integer.getInteger("superzk.pk.cache", 256));
+
+    private final Point point;
+    private final byte[] encoded;
+    private final boolean zero;
+    private final boolean valid;
+    private final Point[] table;
+    private final AtomicInteger uses = new AtomicInteger();
+    private volatile Comb comb;
+
+    public PreparedPublicKey(Point point) {
+        this(point, false);
+    }
+
+    public PreparedPublicKey(Point point, boolean fixedBase) {
+        this(point, point.toBytes(), fixedBase);
+    }
+
+    private PreparedPublicKey(Point point, byte[] encoded, boolean fixedBase) {
+        this.point = point;
+        this.encoded = encoded;
+        this.zero = point.isZero();
+        this.valid = point.isValid();
+        this.table = Point.batchNormalize(Wnaf.oddMultiples(point, WINDOW));
+        if (fixedBase) {
+            this.comb = new Comb(point, COMB_TEETH, COMB_COMBS);
+        }
+    }
+
+    public static PreparedPublicKey cached(Point point) {
+        byte[] encoded = point.toBytes();
+        return CACHE.get(ByteBuffer.wrap(encoded), k -> new PreparedPublicKey(point, encoded, false));
+    }
+
+    /**
+     * The prepared key for a 32-byte encoding, or null if it does not decode.
+     */
+    public static PreparedPublicKey cached(byte[] encoded) {
+        assert (encoded.length == 32);
+        byte[] key = encoded.clone();
+        return CACHE.get(ByteBuffer.wrap(key), k -> {
+            Point point = Point.fromBytes(encoded.clone());
+            return point == null ? null : new PreparedPublicKey(point, point.toBytes(), false);
+        });
+    }
+
+    public Point point() {
+        return this.point;
+    }
+
+    public byte[] toBytes() {
+        return this.encoded.clone();
+    }
+
+    byte[] encoded() {
+        return this.encoded;
+    }
+
+    public boolean isZero() {
+        return this.zero;
+    }
+
+    public boolean isValid() {
+        return this.valid;
+    }
+
+    public Point mult(Field.FR val) {
+        Comb comb = this.comb;
+        if (comb == null && this.uses.incrementAndGet() == HOT_USES) {
+            comb = new Comb(this.point, COMB_TEETH, COMB_COMBS);
+            this.comb = comb;
+        }
+        if (comb != null) {
+            return comb.mult(val);
+        }
+        byte[] naf = Wnaf.recode(val, WINDOW);
+        MutablePoint acc = new MutablePoint();
+        for (int i = naf.length - 1; i >= 0; i--) {
+            acc.twiceAssign();
+            Wnaf.addDigit(acc, this.table, naf[i]);
+        }
+        return acc.toPoint();
+    }
+}
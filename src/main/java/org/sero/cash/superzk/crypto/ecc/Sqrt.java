@@ -0,0 +1,116 @@
+package org.sero.cash.superzk.crypto.ecc;
+
+import java.math.BigInteger;
+
+/**
+ * Square roots in FQ by Tonelli-Shanks, in the sqrt_ratio form of RFC 9380
+ * (appendix F.2.1.1): sqrt(n / d) falls out of one fixed exponentiation, so
+ * decompression needs no separate inversion of d. With q - 1 = 2^S * T, the
+ * exponents and the 2^S-th root of unity are derived from FQ_MODULUS once;
+ * every call then runs the same sequence of field operations.
+ */
+final class Sqrt {
+    private static final int S;
+    /*
+     * (T - 1) / 2 in 4-bit digits, most significant first.
+     */
+    private static final byte[] EXPONENT;
+    /*
+     * Z^T for the smallest non-residue Z, a primitive 2^S-th root of unity.
+     */
+    private static final Field.FQ ROOT_OF_UNITY;
+
+    static {
+        BigInteger q = Constants.FQ_MODULUS;
+        BigInteger qMinusOne = q.subtract(BigInteger.ONE);
+        S = qMinusOne.getLowestSetBit();
+        BigInteger t = qMinusOne.shiftRight(S);
+
+        BigInteger e = t.subtract(BigInteger.ONE).shiftRight(1);
+        EXPONENT = new byte[(e.bitLength() + 3) / 4];
+        for (int i = 0; i < EXPONENT.length; i++) {
+            int shift = 4 * (EXPONENT.length - 1 - i);
+            EXPONENT[i] = (byte) (e.shiftRight(shift).intValue() & 0xf);
+        }
+
+        BigInteger z = BigInteger.valueOf(2);
+        while (z.modPow(qMinusOne.shiftRight(1), q).equals(BigInteger.ONE)) {
+            z = z.add(BigInteger.ONE);
+        }
+        ROOT_OF_UNITY = Field.newFQ(z.modPow(t, q));
+    }
+
+    private Sqrt() {
+    }
+
+    /**
+     * A square root of n / d, or null if n / d is not a square (or d is zero
+     * and n is not).
+     */
+    static Field.FQ ratio(Field.FQ n, Field.FQ d) {
+        if (n.isZero()) {
+            return Field.FQ.ZERO;
+        }
+        MutableFQ u = new MutableFQ(n);
+        MutableFQ v = new MutableFQ(d);
+
+        // tv2 = v^(2^S - 1), tv3 = v^(2^(S+1) - 1)
+        MutableFQ tv2 = new MutableFQ().set(v);
+        for (int i = 1; i < S; i++) {
+            tv2.squareAssign().mulAssign(v);
+        }
+        MutableFQ tv3 = new MutableFQ().setSquare(tv2).mulAssign(v);
+
+        // tv5 = (u * tv3)^((T - 1) / 2) * tv2
+        MutableFQ tv5 = pow(new MutableFQ().setMul(u, tv3)).mulAssign(tv2);
+        tv2.setMul(tv5, v);
+        tv3.setMul(tv5, u);
+        MutableFQ tv4 = new MutableFQ().setMul(tv3, tv2);
+
+        // tv4 is (n / d)^T; its order divides 2^(S-1) exactly when n / d is a square
+        tv5.set(tv4);
+        for (int i = 1; i < S; i++) {
+            tv5.squareAssign();
+        }
+        if (!tv5.isEqualTo(Field.FQ.ONE)) {
+            return null;
+        }
+
+        MutableFQ tv1 = new MutableFQ(ROOT_OF_UNITY);
+        for (int i = S; i >= 2; i--) {
+            tv5.set(tv4);
+            for (int j = 0; j < i - 2; j++) {
+                tv5.squareAssign();
+            }
+            boolean e1 = tv5.isEqualTo(Field.FQ.ONE);
+            tv2.setMul(tv3, tv1);
+            tv1.squareAssign();
+            tv5.setMul(tv4, tv1);
+            if (!e1) {
+                tv3.set(tv2);
+                tv4.set(tv5);
+            }
+        }
+        return tv3.toFQ();
+    }
+
+    /*
+     * x^((T - 1) / 2) over fixed 4-bit windows; overwrites and returns x.
+     */
+    private static MutableFQ pow(MutableFQ x) {
+        MutableFQ[] table = new MutableFQ[16];
+        table[0] = new MutableFQ().setOne();
+        table[1] = new MutableFQ().set(x);
+        for (int i = 2; i < 16; i++) {
+            table[i] = new MutableFQ().setMul(table[i - 1], x);
+        }
+        x.set(table[EXPONENT[0]]);
+        for (int i = 1; i < EXPONENT.length; i++) {
+            x.squareAssign().squareAssign().squareAssign().squareAssign();
+            if (EXPONENT[i] != 0) {
+                x.mulAssign(table[EXPONENT[i]]);
+            }
+        }
+        return x;
+    }
+}
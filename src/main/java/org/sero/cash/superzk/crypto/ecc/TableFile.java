@@ -0,0 +1,299 @@
+package org.sero.cash.superzk.crypto.ecc;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+import org.sero.cash.superzk.util.HexUtils;
+
+/**
+ * Binary image of a Group's precomputed tables, generated at build time by
+ * the generateGroupTables task and shipped as a class-path resource.
+ *
+ * Layout, little endian: magic, version, SegNum, SegBitsNum, Bits, personal
+ * length and bytes, then every table point in [segment][window][digit] order
+ * as the Montgomery limbs of X, Y and T (Z = 1), then SHA-256 of all of the
+ * above. The comb table of a comb group has its own resource, laid out the
+ * same way but with COMB_MAGIC, the comb's bits, teeth and combs in place of
+ * SegNum, SegBitsNum and Bits, and its points in [comb][teeth mask] order.
+ * Bump VERSION whenever either layout or the limb representation changes.
+ */
+final class TableFile {
+    private static final int MAGIC = 0x475a4b53; // "SZKG"
+    private static final int COMB_MAGIC = 0x435a4b53; // "SZKC"
+    private static final int VERSION = 2;
+    private static final int POINT_BYTES = 3 * Montgomery.LIMBS * 8;
+    private static final int DIGEST_BYTES = 32;
+
+    private TableFile() {
+    }
+
+    static String resourceName(byte[] personal, int segNum, int segBitsNum, int bits) {
+        return "tables/" + HexUtils.toHex(personal) + "_" + segNum + "_" + segBitsNum + "_" + bits + ".bin";
+    }
+
+    static String combResourceName(byte[] personal, int bits, int teeth, int combs) {
+        return "tables/" + HexUtils.toHex(personal) + "_comb_" + bits + "_" + teeth + "_" + combs + ".bin";
+    }
+
+    /**
+     * Fills the tables of group from its resource. Returns false, leaving the
+     * group untouched, when the resource is missing, corrupt or was written for
+     * different parameters or an older layout.
+     */
+    static boolean load(Group group) {
+        try {
+            ByteBuffer buf = open(resourceName(group.personal, group.SegNum, group.SegBitsNum, group.Bits));
+            return buf != null && load(group, buf);
+        } catch (IOException | URISyntaxException e) {
+            return false;
+        }
+    }
+
+    static boolean load(Group group, ByteBuffer buf) {
+        try {
+            if (!checksum(buf)) {
+                return false;
+            }
+            if (buf.getInt() != MAGIC || buf.getInt() != VERSION
+                    || buf.getInt() != group.SegNum || buf.getInt() != group.SegBitsNum || buf.getInt() != group.Bits) {
+                return false;
+            }
+            if (!readPersonal(buf, group.personal)) {
+                return false;
+            }
+
+            int combination = group.digits();
+            int groupNum = group.windows();
+            if (buf.remaining() != group.SegNum * groupNum * combination * POINT_BYTES + DIGEST_BYTES) {
+                return false;
+            }
+            Point[][][] indexPoints = new Point[group.SegNum][groupNum][combination];
+            for (int i = 0; i < group.SegNum; i++) {
+                for (int j = 0; j < groupNum; j++) {
+                    for (int k = 0; k < combination; k++) {
+                        indexPoints[i][j][k] = readPoint(buf);
+                    }
+                }
+            }
+
+            // a table from a different hash-to-curve would still pass the checksum
+            if (!indexPoints[0][0][1].isEqualTo(group.findBase(0))) {
+                return false;
+            }
+            for (int i = 0; i < group.SegNum; i++) {
+                group.tables.compareAndSet(i, null, indexPoints[i]);
+            }
+            return true;
+        } catch (NoSuchAlgorithmException | RuntimeException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Fills the table of comb, the comb of group, from its resource. Returns
+     * false, leaving the comb untouched, as load(Group) does.
+     */
+    static boolean load(Group group, Comb comb) {
+        try {
+            ByteBuffer buf = open(combResourceName(group.personal, comb.bits(), comb.teeth(), comb.combs()));
+            return buf != null && load(group, comb, buf);
+        } catch (IOException | URISyntaxException e) {
+            return false;
+        }
+    }
+
+    static boolean load(Group group, Comb comb, ByteBuffer buf) {
+        try {
+            if (!checksum(buf)) {
+                return false;
+            }
+            if (buf.getInt() != COMB_MAGIC || buf.getInt() != VERSION
+                    || buf.getInt() != comb.bits() || buf.getInt() != comb.teeth() || buf.getInt() != comb.combs()) {
+                return false;
+            }
+            if (!readPersonal(buf, group.personal)) {
+                return false;
+            }
+
+            int size = 1 << comb.teeth();
+            if (buf.remaining() != comb.combs() * size * POINT_BYTES + DIGEST_BYTES) {
+                return false;
+            }
+            Point[][] table = new Point[comb.combs()][size];
+            for (int j = 0; j < comb.combs(); j++) {
+                for (int u = 0; u < size; u++) {
+                    table[j][u] = readPoint(buf);
+                }
+            }
+
+            if (!table[0][1].isEqualTo(group.point(0))) {
+                return false;
+            }
+            return comb.load(table);
+        } catch (NoSuchAlgorithmException | RuntimeException e) {
+            return false;
+        }
+    }
+
+    static void write(Group group, File dir) throws IOException {
+        File file = file(dir, resourceName(group.personal, group.SegNum, group.SegBitsNum, group.Bits));
+
+        int combination = group.digits();
+        int groupNum = group.windows();
+        int size = 6 * 4 + group.personal.length + group.SegNum * groupNum * combination * POINT_BYTES;
+        ByteBuffer buf = ByteBuffer.allocate(size + DIGEST_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        buf.putInt(MAGIC).putInt(VERSION);
+        buf.putInt(group.SegNum).putInt(group.SegBitsNum).putInt(group.Bits);
+        buf.putInt(group.personal.length).put(group.personal);
+        for (int i = 0; i < group.SegNum; i++) {
+            for (int j = 0; j < groupNum; j++) {
+                for (int k = 0; k < combination; k++) {
+                    writePoint(buf, group.tables.get(i)[j][k]);
+                }
+            }
+        }
+        seal(buf, size, file);
+    }
+
+    static void write(Group group, Comb comb, File dir) throws IOException {
+        File file = file(dir, combResourceName(group.personal, comb.bits(), comb.teeth(), comb.combs()));
+
+        Point[][] table = comb.table();
+        int size = 6 * 4 + group.personal.length + comb.combs() * (1 << comb.teeth()) * POINT_BYTES;
+        ByteBuffer buf = ByteBuffer.allocate(size + DIGEST_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        buf.putInt(COMB_MAGIC).putInt(VERSION);
+        buf.putInt(comb.bits()).putInt(comb.teeth()).putInt(comb.combs());
+        buf.putInt(group.personal.length).put(group.personal);
+        for (Point[] row : table) {
+            for (Point point : row) {
+                writePoint(buf, point);
+            }
+        }
+        seal(buf, size, file);
+    }
+
+    private static File file(File dir, String name) {
+        String pkg = TableFile.class.getPackage().getName().replace('.', File.separatorChar);
+        File file = new File(new File(dir, pkg), name);
+        file.getParentFile().mkdirs();
+        return file;
+    }
+
+    /*
+     * Appends SHA-256 of the first size bytes of buf and writes buf to file.
+     */
+    private static void seal(ByteBuffer buf, int size, File file) throws IOException {
+        try {
+            MessageDigest sha = MessageDigest.getInstance("SHA-256");
+            sha.update(buf.array(), 0, size);
+            buf.put(sha.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+
+        try (OutputStream out = new FileOutputStream(file)) {
+            out.write(buf.array());
+        }
+    }
+
+    /*
+     * Whether buf ends in SHA-256 of the rest; leaves buf little endian at
+     * its start.
+     */
+    private static boolean checksum(ByteBuffer buf) throws NoSuchAlgorithmException {
+        if (buf.capacity() < DIGEST_BYTES) {
+            return false;
+        }
+        buf.order(ByteOrder.LITTLE_ENDIAN);
+
+        ByteBuffer body = buf.duplicate();
+        body.limit(buf.capacity() - DIGEST_BYTES);
+        MessageDigest sha = MessageDigest.getInstance("SHA-256");
+        sha.update(body);
+        byte[] expected = new byte[DIGEST_BYTES];
+        ((ByteBuffer) buf.duplicate().position(buf.capacity() - DIGEST_BYTES)).get(expected);
+        return MessageDigest.isEqual(sha.digest(), expected);
+    }
+
+    private static boolean readPersonal(ByteBuffer buf, byte[] expected) {
+        byte[] personal = new byte[buf.getInt()];
+        buf.get(personal);
+        return java.util.Arrays.equals(personal, expected);
+    }
+
+    /*
+     * Maps the resource when it is a plain file; otherwise (inside a jar)
+     * streams it into a direct buffer.
+     */
+    private static ByteBuffer open(String name) throws IOException, URISyntaxException {
+        URL url = TableFile.class.getResource(name);
+        if (url == null) {
+            return null;
+        }
+        if ("file".equals(url.getProtocol())) {
+            try (FileChannel channel = FileChannel.open(Paths.get(url.toURI()), StandardOpenOption.READ)) {
+                return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            }
+        }
+        URLConnection conn = url.openConnection();
+        long length = conn.getContentLengthLong();
+        if (length < 0 || length > Integer.MAX_VALUE) {
+            return null;
+        }
+        ByteBuffer buf = ByteBuffer.allocateDirect((int) length);
+        try (InputStream in = conn.getInputStream(); ReadableByteChannel channel = Channels.newChannel(in)) {
+            while (buf.hasRemaining() && channel.read(buf) >= 0) {
+            }
+        }
+        if (buf.hasRemaining()) {
+            return null;
+        }
+        buf.flip();
+        return buf;
+    }
+
+    private static Point readPoint(ByteBuffer buf) {
+        Field.FQ x = new Field.FQ(readLimbs(buf));
+        Field.FQ y = new Field.FQ(readLimbs(buf));
+        Field.FQ t = new Field.FQ(readLimbs(buf));
+        return new Point(x, y, Field.FQ.ONE, t);
+    }
+
+    private static void writePoint(ByteBuffer buf, Point point) {
+        if (!point.normalized) {
+            throw new RuntimeException("table point is not normalized");
+        }
+        writeLimbs(buf, point.x.v);
+        writeLimbs(buf, point.y.v);
+        writeLimbs(buf, point.t.v);
+    }
+
+    private static long[] readLimbs(ByteBuffer buf) {
+        long[] limbs = new long[Montgomery.LIMBS];
+        for (int i = 0; i < limbs.length; i++) {
+            limbs[i] = buf.getLong();
+        }
+        return limbs;
+    }
+
+    private static void writeLimbs(ByteBuffer buf, long[] limbs) {
+        for (int i = 0; i < limbs.length; i++) {
+            buf.putLong(limbs[i]);
+        }
+    }
+}
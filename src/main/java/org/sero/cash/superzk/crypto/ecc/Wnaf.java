@@ -0,0 +1,91 @@
+package org.sero.cash.superzk.crypto.ecc;
+
+/**
+ * Width-w non-adjacent form recoding and the odd-multiples tables it indexes.
+ */
+final class Wnaf {
+    static final int MIN_WINDOW = 2;
+    static final int MAX_WINDOW = 8;
+
+    private Wnaf() {
+    }
+
+    static void checkWindow(int window) {
+        if (window < MIN_WINDOW || window > MAX_WINDOW) {
+            throw new RuntimeException("wnaf window must be in [" + MIN_WINDOW + ", " + MAX_WINDOW + "]");
+        }
+    }
+
+    /**
+     * Recodes the scalar into signed digits, least significant first. Every
+     * non-zero digit is odd, below 2^(w-1) in magnitude, and followed by at
+     * least w-1 zeros.
+     */
+    static byte[] recode(Field.FR scalar, int window) {
+        long[] k = scalar.toLimbs();
+        byte[] digits = new byte[64 * Montgomery.LIMBS + 1];
+        int full = 1 << window;
+        int half = full >>> 1;
+        int len = 0;
+        while (!Montgomery.isZero(k)) {
+            int digit = 0;
+            if ((k[0] & 1) != 0) {
+                digit = (int) (k[0] & (full - 1));
+                if (digit >= half) {
+                    digit -= full;
+                }
+                subtract(k, digit);
+            }
+            digits[len++] = (byte) digit;
+            shiftRight(k);
+        }
+        return java.util.Arrays.copyOf(digits, len);
+    }
+
+    /**
+     * P, 3P, 5P, ..., (2^(w-1) - 1)P.
+     */
+    static Point[] oddMultiples(Point point, int window) {
+        Point[] table = new Point[1 << (window - 2)];
+        MutablePoint acc = new MutablePoint(point);
+        MutablePoint twice = new MutablePoint(point).twiceAssign();
+        table[0] = point;
+        for (int i = 1; i < table.length; i++) {
+            table[i] = acc.addAssign(twice).toPoint();
+        }
+        return table;
+    }
+
+    /**
+     * acc += digit * P, with table from {@link #oddMultiples}.
+     */
+    static void addDigit(MutablePoint acc, Point[] table, int digit) {
+        if (digit > 0) {
+            acc.addAssign(table[digit >>> 1]);
+        } else if (digit < 0) {
+            acc.subAssign(table[(-digit) >>> 1]);
+        }
+    }
+
+    private static void subtract(long[] k, int digit) {
+        if (digit >= 0) {
+            // the low bits of k equal digit, so this never borrows past limb 0
+            k[0] -= digit;
+        } else {
+            long s = k[0] - digit;
+            long carry = (s ^ Long.MIN_VALUE) < (k[0] ^ Long.MIN_VALUE) ? 1 : 0;
+            k[0] = s;
+            for (int i = 1; i < k.length && carry != 0; i++) {
+                k[i] += carry;
+                carry = k[i] == 0 ? 1 : 0;
+            }
+        }
+    }
+
+    private static void shiftRight(long[] k) {
+        for (int i = 0; i < k.length - 1; i++) {
+            k[i] = (k[i] >>> 1) | (k[i + 1] << 63);
+        }
+        k[k.length - 1] >>>= 1;
+    }
+}
@@ -1,12 +1,33 @@
 package org.sero.cash.superzk.protocol;
 
+import java.nio.ByteBuffer;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.sero.cash.superzk.crypto.ecc.BaseCache;
 import org.sero.cash.superzk.crypto.ecc.Field;
+import org.sero.cash.superzk.crypto.ecc.Mult;
 import org.sero.cash.superzk.crypto.ecc.Point;
 import org.sero.cash.superzk.util.Arrays;
 import org.sero.cash.superzk.util.HexUtils;
+import org.sero.cash.superzk.util.LruCache;
 
 public class Asset {
     private static byte[] EMPTY = new byte[32];
+
+    /*
+     * Token values are below 2^240 (see isValid), so the tables of hot
+     * currencies only cover that many bits. Ticket bases are only ever added,
+     * so they are cached as plain points. Sized by superzk.asset.cache and
+     * superzk.ticket.cache.
+     */
+    private static final int VALUE_BITS = 240;
+    private static final BaseCache TKN_BASES =
+            new BaseCache(Integer.getInteger("superzk.asset.cache", 256), VALUE_BITS, Asset::findTknBase);
+    private static final LruCache<ByteBuffer, Point> TKT_BASES =
+            new LruCache<ByteBuffer, Point>(Integer.getInteger("superzk.ticket.cache", 1024));
+
     public byte[] tkn_currency;
     public Field.FR tkn_value;
     public byte[] tkt_category;
@@ -75,8 +96,7 @@ public class Asset {
     }
 
     public Point genAssetCC() {
-        Point tknBase = genTknBase(this.tkn_currency);
-        Point G_tkn = tknBase.mult(this.tkn_value);
+        Point G_tkn = TKN_BASES.get(this.tkn_currency).mult(this.tkn_value);
         if (this.hasTkt()) {
             Point G_tkt = genTktBase(this.tkt_category, this.tkt_value);
             return G_tkn.add(G_tkt);
@@ -91,7 +111,59 @@ public class Asset {
         return cc.add(cr);
     }
 
-    private Point genTknBase(byte[] currency) {
+    /**
+     * sum(adds[i].genAssetCC()) - sum(subs[i].genAssetCC()) as one MSM. Values
+     * of the same currency (and counts of the same ticket) are netted first,
+     * so each distinct base is found and multiplied once.
+     */
+    public static Point genAssetCCs(List<Asset> adds, List<Asset> subs) {
+        Map<String, Field.FR> values = new LinkedHashMap<>();
+        Map<String, byte[]> keys = new LinkedHashMap<>();
+        collect(adds, false, values, keys);
+        collect(subs, true, values, keys);
+
+        Field.FR[] scalars = new Field.FR[values.size()];
+        Mult[] bases = new Mult[values.size()];
+        int n = 0;
+        for (Map.Entry<String, Field.FR> entry : values.entrySet()) {
+            if (entry.getValue().isZero()) {
+                continue;
+            }
+            byte[] key = keys.get(entry.getKey());
+            scalars[n] = entry.getValue();
+            if (key.length == 32) {
+                bases[n] = TKN_BASES.get(key);
+            } else {
+                bases[n] = genTktBase(Arrays.slice(key, 0, 32), Arrays.slice(key, 32, 64));
+            }
+            n++;
+        }
+        return Point.multiScalar(java.util.Arrays.copyOf(scalars, n), java.util.Arrays.copyOf(bases, n));
+    }
+
+    private static void collect(List<Asset> assets, boolean negate, Map<String, Field.FR> values, Map<String, byte[]> keys) {
+        for (Asset asset : assets) {
+            Field.FR value = negate ? asset.tkn_value.negate() : asset.tkn_value;
+            accumulate("tkn" + HexUtils.toHex(asset.tkn_currency), asset.tkn_currency, value, values, keys);
+            if (asset.hasTkt()) {
+                byte[] tkt = Arrays.concat(asset.tkt_category, asset.tkt_value);
+                Field.FR one = negate ? Field.FR.ONE.negate() : Field.FR.ONE;
+                accumulate("tkt" + HexUtils.toHex(tkt), tkt, one, values, keys);
+            }
+        }
+    }
+
+    private static void accumulate(String id, byte[] key, Field.FR value, Map<String, Field.FR> values, Map<String, byte[]> keys) {
+        Field.FR sum = values.get(id);
+        values.put(id, sum == null ? value : sum.add(value));
+        keys.put(id, key);
+    }
+
+    static Point genTknBase(byte[] currency) {
+        return TKN_BASES.point(currency);
+    }
+
+    private static Point findTknBase(byte[] currency) {
         assert (currency.length == 32);
         byte[] data = new byte[64];
         System.arraycopy(currency, 0, data, 0, 32);
@@ -102,10 +174,14 @@ public class Asset {
         return ret;
     }
 
-    private Point genTktBase(byte[] category, byte[] value) {
+    static Point genTktBase(byte[] category, byte[] value) {
         assert (category.length == 32);
         assert (value.length == 32);
         byte[] data = Arrays.concat(category, value);
+        return TKT_BASES.get(ByteBuffer.wrap(data), k -> findTktBase(data));
+    }
+
+    private static Point findTktBase(byte[] data) {
         Point ret = Point.Blake2s.findPoint("SZK$TKT".getBytes(), data);
         if (ret == null) {
             throw new RuntimeException("find point error");
@@ -0,0 +1,25 @@
+package org.sero.cash.superzk.protocol;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.sero.cash.superzk.protocol.czero.Czero;
+
+/**
+ * Writes the precomputed tables of the protocol generators into the given
+ * resource directory; run by the generateGroupTables gradle task. For
+ * accountBase and crBase these are their comb tables.
+ */
+public class GenTables {
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 1) {
+            throw new RuntimeException("usage: GenTables <resource dir>");
+        }
+        File dir = new File(args[0]);
+        Param.accountBase.writeTable(dir);
+        Param.crBase.writeTable(dir);
+        Param.rootBase.writeTable(dir);
+        Czero.outCmBase.writeTable(dir);
+    }
+}
@@ -1,19 +1,29 @@
 package org.sero.cash.superzk.protocol;
 
+import java.util.List;
+
 import org.sero.cash.superzk.crypto.Blake;
-import org.sero.cash.superzk.crypto.ecc.BitBuffer;
 import org.sero.cash.superzk.crypto.ecc.Eddsa;
 import org.sero.cash.superzk.crypto.ecc.Field;
 import org.sero.cash.superzk.crypto.ecc.Group;
+import org.sero.cash.superzk.crypto.ecc.MutablePoint;
+import org.sero.cash.superzk.crypto.ecc.Pedersen;
 import org.sero.cash.superzk.crypto.ecc.Point;
 import org.sero.cash.superzk.protocol.superzk.Account;
 import org.sero.cash.superzk.util.Arrays;
 
 
 public class Param {
-    public static Group accountBase = new Group("$SROKEYSGEN".getBytes(), 1, 256, 4);
-    public static Group crBase = new Group("SZK$ASSET$CR".getBytes(), 1, 256, 4);
-    public static Group rootBase = new Group("SZK$ROOTCM".getBytes(), 10, 128, 4);
+    /*
+     * Table sizes follow heap budgets, overridable per group with
+     * -Dsuperzk.group.budget.<name>=<bytes>. accountBase and crBase only ever
+     * multiply single scalars, so they use a comb (10 teeth by default);
+     * rootBase gets 4-bit windows by default.
+     */
+    public static Group accountBase = Group.comb("$SROKEYSGEN".getBytes(), Group.budget("accountBase", 1280 << 10));
+    public static Group crBase = Group.comb("SZK$ASSET$CR".getBytes(), Group.budget("crBase", 1280 << 10));
+    public static Group rootBase = new Group("SZK$ROOTCM".getBytes(), 10, 128,
+            Group.windowFor(10, 128, Group.budget("rootBase", 1 << 20)));
 
 
     public static byte[] setFlag(byte[] buf) {
@@ -35,10 +45,63 @@ public class Param {
     }
 
     public static Point genRootCM(int index, Account.PKr pkr, Point asset_cm) {
-        byte[] inde_hash = hashIndex(index);
-        byte[] data = Arrays.concat(inde_hash, pkr.toBytes(), asset_cm.toBytes());
-        BitBuffer bits = new BitBuffer(data);
-        return rootBase.mult(bits);
+        Pedersen engine = new Pedersen(rootBase);
+        engine.update(hashIndex(index));
+        engine.update(pkr.ZPKr).update(pkr.VPKr).update(setFlag(pkr.BASEr.toBytes()));
+        return engine.update(asset_cm).finish();
+    }
+
+    /**
+     * genRootCM over many outputs, encoding all input points with one field
+     * inversion and normalizing all the commitments with another.
+     */
+    public static Point[] genRootCMs(int[] indexes, Account.PKr[] pkrs, Point[] asset_cms) {
+        assert (indexes.length == pkrs.length && indexes.length == asset_cms.length);
+        int n = indexes.length;
+        Point[] points = new Point[4 * n];
+        for (int i = 0; i < n; i++) {
+            points[4 * i] = pkrs[i].ZPKr;
+            points[4 * i + 1] = pkrs[i].VPKr;
+            points[4 * i + 2] = pkrs[i].BASEr;
+            points[4 * i + 3] = asset_cms[i];
+        }
+        byte[][] encoded = Point.batchToBytes(points);
+
+        Pedersen[] engines = new Pedersen[n];
+        for (int i = 0; i < n; i++) {
+            engines[i] = new Pedersen(rootBase);
+            engines[i].update(hashIndex(indexes[i]));
+            engines[i].update(encoded[4 * i]).update(encoded[4 * i + 1]).update(setFlag(encoded[4 * i + 2]));
+            engines[i].update(encoded[4 * i + 3]);
+        }
+        return Pedersen.finish(engines);
+    }
+
+    private static Point sum(List<Point> adds, List<Point> subs) {
+        MutablePoint ret = new MutablePoint();
+        for (int i = 0; i < adds.size(); i++) {
+            ret.addAssign(adds.get(i));
+        }
+        for (int i = 0; i < subs.size(); i++) {
+            ret.subAssign(subs.get(i));
+        }
+        return ret.toPoint();
+    }
+
+    /**
+     * zin_acms - zout_acms.
+     */
+    private static Point genZAcm(Types.Params params) {
+        return sum(params.zin_acms, params.zout_acms);
+    }
+
+    /**
+     * oout - oin, over both the precomputed asset CCs and the assets whose
+     * CCs are folded into a single MSM.
+     */
+    private static Point genOAcc(Types.Params params) {
+        Point accs = sum(params.oout_accs, params.oin_accs);
+        return accs.add(Asset.genAssetCCs(params.oout_assets, params.oin_assets));
     }
 
     public static byte[][] signBalance(byte[] h, Types.Params params) {
@@ -46,38 +109,23 @@ public class Param {
         assert (params.zin_acms.size() == params.zin_ars.size());
         assert (params.zout_acms.size() == params.zout_ars.size());
 
-        Point zin_acm = Point.ZERO;
         Field.FR zin_ar = Field.FR.ZERO;
-
         for (int i = 0; i < params.zin_ars.size(); i++) {
-            zin_acm = zin_acm.add(params.zin_acms.get(i));
             zin_ar = zin_ar.add(params.zin_ars.get(i));
         }
 
-        Point zout_acm = Point.ZERO;
         Field.FR zout_ar = Field.FR.ZERO;
         for (int i = 0; i < params.zout_ars.size(); i++) {
-            zout_acm = zout_acm.add(params.zout_acms.get(i));
             zout_ar = zout_ar.add(params.zout_ars.get(i));
         }
 
-        Point oin_acc = Point.ZERO;
-        for (int i = 0; i < params.oin_accs.size(); i++) {
-            oin_acc = oin_acc.add(params.oin_accs.get(i));
-        }
-
-        Point oout_acc = Point.ZERO;
-        for (int i = 0; i < params.oout_accs.size(); i++) {
-            oout_acc = oout_acc.add(params.oout_accs.get(i));
-        }
-
-        Point zacm = zin_acm.add(zout_acm.mult(Field.FR.ONE.negate()));
         Field.FR zar = zin_ar.add(zout_ar.negate());
         if (zar.isZero()) {
             return null;
         }
 
-        Point oacc = oout_acc.add(oin_acc.mult(Field.FR.ONE.negate()));
+        Point zacm = genZAcm(params);
+        Point oacc = genOAcc(params);
         Point bcr = crBase.mult(zar);
         Point oacm = oacc.add(bcr);
 
@@ -96,24 +144,8 @@ public class Param {
         assert (h.length == 32);
         assert (bsign.length == 64);
 
-        Point zin_acm = Point.ZERO;
-        for (int i = 0; i < params.zin_acms.size(); i++) {
-            zin_acm = zin_acm.add(params.zin_acms.get(i));
-        }
-        Point zout_acm = Point.ZERO;
-        for (int i = 0; i < params.zout_acms.size(); i++) {
-            zout_acm = zout_acm.add(params.zout_acms.get(i));
-        }
-        Point oin_acc = Point.ZERO;
-        for (int i = 0; i < params.oin_accs.size(); i++) {
-            oin_acc = oin_acc.add(params.oin_accs.get(i));
-        }
-        Point oout_acc = Point.ZERO;
-        for (int i = 0; i < params.oout_accs.size(); i++) {
-            oout_acc = oout_acc.add(params.oout_accs.get(i));
-        }
-        Point zacm = zin_acm.add(zout_acm.mult(Field.FR.ONE.negate()));
-        Point oacc = oout_acc.add(oin_acc.mult(Field.FR.ONE.negate()));
+        Point zacm = genZAcm(params);
+        Point oacc = genOAcc(params);
         Point oacm = oacc.add(bcr);
         if (!oacm.isEqualTo(zacm)) {
             return false;
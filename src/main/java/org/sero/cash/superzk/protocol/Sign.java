@@ -128,7 +128,7 @@ public class Sign {
 	private static void genFee(Context ctx) {
 		ctx.s.Fee = ctx.param.Fee;
 		Asset asset = tokenToAsset(ctx.s.Fee);
-		ctx.balance_desc.param.oout_accs.add(asset.genAssetCC());
+		ctx.balance_desc.param.oout_assets.add(asset);
 	}
 
 	private static void genCmd(Context ctx) {
@@ -138,8 +138,7 @@ public class Sign {
 			a = ctx.param.Cmds.Contract.Asset;
 		}
 		if (null != a) {
-			Point cc = a.toAsset().genAssetCC();
-			ctx.balance_desc.param.oout_accs.add(cc);
+			ctx.balance_desc.param.oout_assets.add(a.toAsset());
 		}
 	}
 
@@ -156,7 +155,7 @@ public class Sign {
 			t_in.Nil = Czero.genNil(sk, item.Out.State.OS.RootCM);
 
 			if (item.Out.State.OS.Out_O != null) {
-				self.balance_desc.param.oin_accs.add(item.Out.State.OS.Out_O.Asset.toAsset().genAssetCC());
+				self.balance_desc.param.oin_assets.add(item.Out.State.OS.Out_O.Asset.toAsset());
 			} else {
 				Types.Out_Z outz = item.Out.State.OS.Out_Z;
 				t_in.Key = Czero.fetchKey(tk, outz.RPK);
@@ -164,7 +163,7 @@ public class Sign {
 				Types.TDOut out = Czero.confirmOutZ(t_in.Key, outz.EInfo, outz.PKr, outz.OutCM);
 				
 				if (out != null) {
-					self.balance_desc.param.oin_accs.add(out.Asset.toAsset().genAssetCC());
+					self.balance_desc.param.oin_assets.add(out.Asset.toAsset());
 				} else {
 					throw new RuntimeException("gen tx1 confirm outz error");
 				}
@@ -181,14 +180,14 @@ public class Sign {
 			if (item.Out.State.OS.Out_P != null) {
 				Types.Out_P out_p = item.Out.State.OS.Out_P;
 				t_in.Nil = SuperZk.genNil(tk, item.Out.State.OS.RootCM, out_p.PKr);
-				self.balance_desc.param.oin_accs.add(out_p.Asset.toAsset().genAssetCC());
+				self.balance_desc.param.oin_assets.add(out_p.Asset.toAsset());
 			} else {
 				Types.Out_C out_c = item.Out.State.OS.Out_C;
 				t_in.Nil = SuperZk.genNil(tk, item.Out.State.OS.RootCM, out_c.PKr);
 				t_in.Key = SuperZk.fetchRPKKey(out_c.PKr, tk, out_c.RPK);
 				Types.TDOut out = SuperZk.confirmOutC(t_in.Key, out_c.EInfo, out_c.AssetCM);
 				if (out != null) {
-					self.balance_desc.param.oin_accs.add(out.Asset.toAsset().genAssetCC());
+					self.balance_desc.param.oin_assets.add(out.Asset.toAsset());
 				} else {
 					throw new RuntimeException("gen tx1 confirm outz error");
 				}
@@ -222,11 +221,19 @@ public class Sign {
 	}
 
 	public static void genOutsC(Context self) {
-		self.c_outs.forEach(out -> {
-			Types.Out_C t_out = new Types.Out_C();
+		Point[] assetCMs = new Point[self.c_outs.size()];
+		for (int i = 0; i < assetCMs.length; i++) {
+			Types.GOut out = self.c_outs.get(i);
 			out.Ar = Field.randomFR();
+			assetCMs[i] = out.Asset.toAsset().genAssetCM(out.Ar);
+		}
+		assetCMs = Point.batchNormalize(assetCMs);
+
+		for (int i = 0; i < assetCMs.length; i++) {
+			Types.GOut out = self.c_outs.get(i);
+			Types.Out_C t_out = new Types.Out_C();
 			Asset asset = out.Asset.toAsset();
-			t_out.AssetCM = asset.genAssetCM(out.Ar);
+			t_out.AssetCM = assetCMs[i];
 			t_out.PKr = out.PKr;
 			byte[][] bytes = SuperZk.genPKrKey(out.PKr, Field.randomFR());
 			t_out.RPK = bytes[1];
@@ -237,14 +244,13 @@ public class Sign {
 			self.balance_desc.param.zout_acms.add(t_out.AssetCM);
 			self.balance_desc.param.zout_ars.add(out.Ar);
 			self.s.Tx1.Outs_C.add(t_out);
-		});
+		}
 	}
 
 	public static void genOutsP(Context self) {
 		self.p_outs.forEach(out -> {
 			Types.Out_P t_out = new Types.Out_P(out.PKr, out.Asset, out.Memo);
-			Point assetCC = out.Asset.toAsset().genAssetCC();
-			self.balance_desc.param.oout_accs.add(assetCC);
+			self.balance_desc.param.oout_assets.add(out.Asset.toAsset());
 			self.s.Tx1.Outs_P.add(t_out);
 		});
 	}
@@ -256,11 +262,7 @@ public class Sign {
 	public static void genSign(Context self) {
 		self.balance_desc.hash = self.s.hash();
 		if (self.param.From.SKr != null) {
-			if (Param.isFlagSet(self.s.From.toBytes())) {
-				self.s.Sign = SuperZk.signPKr(self.param.From.SKr, self.balance_desc.hash, self.s.From);
-			} else {
-				self.s.Sign = Czero.signByPKr(self.param.From.SKr, self.balance_desc.hash, self.s.From);
-			}
+			self.s.Sign = self.param.From.signer().sign(self.balance_desc.hash);
 		} else {
 			throw new RuntimeException("skr is undefined");
 		}
@@ -6,8 +6,11 @@ import java.util.List;
 
 import org.apache.commons.collections4.CollectionUtils;
 import org.ethereum.crypto.HashUtil;
+import org.sero.cash.superzk.crypto.ecc.EddsaSigner;
 import org.sero.cash.superzk.crypto.ecc.Field;
 import org.sero.cash.superzk.crypto.ecc.Point;
+import org.sero.cash.superzk.protocol.czero.Czero;
+import org.sero.cash.superzk.protocol.superzk.SuperZk;
 import org.sero.cash.superzk.util.Arrays;
 import org.spongycastle.util.encoders.Hex;
 
@@ -22,6 +25,8 @@ public class Types {
 		public List<Field.FR> zout_ars;
 		public List<Point> oin_accs;
 		public List<Point> oout_accs;
+		public List<org.sero.cash.superzk.protocol.Asset> oin_assets;
+		public List<org.sero.cash.superzk.protocol.Asset> oout_assets;
 
 		public Params() {
 			zin_acms = Lists.newArrayList();
@@ -30,6 +35,8 @@ public class Types {
 			zout_ars = Lists.newArrayList();
 			oin_accs = Lists.newArrayList();
 			oout_accs = Lists.newArrayList();
+			oin_assets = Lists.newArrayList();
+			oout_assets = Lists.newArrayList();
 		}
 
 		public Params(List<Point> zin_acms, List<Field.FR> zin_ars, List<Point> zout_acms, List<Field.FR> zout_ars,
@@ -40,6 +47,8 @@ public class Types {
 			this.zout_ars = zout_ars;
 			this.oin_accs = oin_accs;
 			this.oout_accs = oout_accs;
+			this.oin_assets = Lists.newArrayList();
+			this.oout_assets = Lists.newArrayList();
 		}
 	}
 
@@ -75,12 +84,33 @@ public class Types {
 		public AccountType.SK SKr;
 		public AccountType.PKr PKr;
 
+		/*
+		 * The From signer, kept across txs signed with this Kr and rebuilt
+		 * only when SKr or PKr is replaced.
+		 */
+		private transient EddsaSigner signer;
+		private transient AccountType.SK signerSKr;
+		private transient AccountType.PKr signerPKr;
+
 		public Kr() {
 		}
 
 		public Kr(AccountType.PKr PKr) {
 			this.PKr = PKr;
 		}
+
+		synchronized EddsaSigner signer() {
+			if (this.signer == null || this.signerSKr != this.SKr || this.signerPKr != this.PKr) {
+				if (Param.isFlagSet(this.PKr.toBytes())) {
+					this.signer = SuperZk.signerPKr(this.SKr, this.PKr);
+				} else {
+					this.signer = Czero.signerByPKr(this.SKr, this.PKr);
+				}
+				this.signerSKr = this.SKr;
+				this.signerPKr = this.PKr;
+			}
+			return this.signer;
+		}
 	}
 
 	public static class GIn {
@@ -499,10 +529,14 @@ public class Types {
 		}
 
 		public byte[] hash() {
+			return this.hash(Nil.toBytes(), Trace.toBytes());
+		}
+
+		byte[] hash(byte[] nil, byte[] trace) {
 			List<byte[]> list = Lists.newArrayList();
 			list.add(Root);
-			list.add(Nil.toBytes());
-			list.add(Trace.toBytes());
+			list.add(nil);
+			list.add(trace);
 			if (Key != null) {
 				list.add(Key);
 			}
@@ -510,7 +544,11 @@ public class Types {
 		}
 
 		public byte[] toHash() {
-			List<byte[]> list = Lists.newArrayList(this.Root, this.Nil.toBytes(), this.Trace.toBytes());
+			return this.toHash(this.Nil.toBytes(), this.Trace.toBytes());
+		}
+
+		byte[] toHash(byte[] nil, byte[] trace) {
+			List<byte[]> list = Lists.newArrayList(this.Root, nil, trace);
 			if (this.Key != null) {
 				list.add(this.Key);
 			}
@@ -532,11 +570,19 @@ public class Types {
 		}
 
 		public byte[] hash() {
-			return HashUtil.sha3(Anchor, Nil, AssetCM.toBytes(), ZPKa.toBytes());
+			return this.hash(AssetCM.toBytes(), ZPKa.toBytes());
+		}
+
+		byte[] hash(byte[] assetCM, byte[] zpka) {
+			return HashUtil.sha3(Anchor, Nil, assetCM, zpka);
 		}
 
 		public byte[] toHash() {
-			return HashUtil.sha3(Anchor, Nil, AssetCM.toBytes(), ZPKa.toBytes(), Sign, Proof);
+			return this.toHash(AssetCM.toBytes(), ZPKa.toBytes());
+		}
+
+		byte[] toHash(byte[] assetCM, byte[] zpka) {
+			return HashUtil.sha3(Anchor, Nil, assetCM, zpka, Sign, Proof);
 		}
 	}
 
@@ -575,11 +621,19 @@ public class Types {
 		}
 
 		public byte[] hash() {
-			return HashUtil.sha3(PKr.toBytes(), AssetCM.toBytes(), RPK, EInfo);
+			return this.hash(AssetCM.toBytes());
+		}
+
+		byte[] hash(byte[] assetCM) {
+			return HashUtil.sha3(PKr.toBytes(), assetCM, RPK, EInfo);
 		}
 
 		public byte[] toHash() {
-			return HashUtil.sha3(PKr.toBytes(), AssetCM.toBytes(), RPK, EInfo, Proof);
+			return this.toHash(AssetCM.toBytes());
+		}
+
+		byte[] toHash(byte[] assetCM) {
+			return HashUtil.sha3(PKr.toBytes(), assetCM, RPK, EInfo, Proof);
 		}
 	}
 
@@ -598,12 +652,34 @@ public class Types {
 			Outs_P = new ArrayList<Out_P>();
 		}
 
+		/**
+		 * The encodings of every point the item hashes take, in Ins_P0 (Nil,
+		 * Trace), Ins_C (AssetCM, ZPKa), Outs_C (AssetCM) order, compressed
+		 * with one shared inversion. The tx itself is left untouched.
+		 */
+		private byte[][] encodePoints() {
+			List<Point> points = Lists.newArrayList();
+			this.Ins_P0.forEach(each -> {
+				points.add(each.Nil);
+				points.add(each.Trace);
+			});
+			this.Ins_C.forEach(each -> {
+				points.add(each.AssetCM);
+				points.add(each.ZPKa);
+			});
+			this.Outs_C.forEach(each -> {
+				points.add(each.AssetCM);
+			});
+			return Point.batchToBytes(points.toArray(new Point[0]));
+		}
+
 		public byte[] hash() {
+			byte[][] encoded = this.encodePoints();
+			int i = 0;
 			List<byte[]> list = Lists.newArrayList();
-			if (this.Ins_P0.size() > 0) {
-				this.Ins_P0.forEach(each -> {
-					list.add(each.hash());
-				});
+			for (In_P0 each : this.Ins_P0) {
+				list.add(each.hash(encoded[i], encoded[i + 1]));
+				i += 2;
 			}
 
 			if (this.Ins_P.size() > 0) {
@@ -611,15 +687,12 @@ public class Types {
 					list.add(each.hash());
 				});
 			}
-			if (this.Ins_C.size() > 0) {
-				this.Ins_C.forEach(each -> {
-					list.add(each.hash());
-				});
+			for (In_C each : this.Ins_C) {
+				list.add(each.hash(encoded[i], encoded[i + 1]));
+				i += 2;
 			}
-			if (this.Outs_C.size() > 0) {
-				this.Outs_C.forEach(each -> {
-					list.add(each.hash());
-				});
+			for (Out_C each : this.Outs_C) {
+				list.add(each.hash(encoded[i++]));
 			}
 			if (this.Outs_P.size() > 0) {
 				this.Outs_P.forEach(each -> {
@@ -630,12 +703,12 @@ public class Types {
 		}
 
 		public byte[] toHash() {
-
+			byte[][] encoded = this.encodePoints();
+			int i = 0;
 			List<byte[]> list = Lists.newArrayList();
-			if (this.Ins_P0.size() > 0) {
-				this.Ins_P0.forEach(each -> {
-					list.add(each.toHash());
-				});
+			for (In_P0 each : this.Ins_P0) {
+				list.add(each.toHash(encoded[i], encoded[i + 1]));
+				i += 2;
 			}
 
 			if (this.Ins_P.size() > 0) {
@@ -643,15 +716,12 @@ public class Types {
 					list.add(each.toHash());
 				});
 			}
-			if (this.Ins_C.size() > 0) {
-				this.Ins_C.forEach(each -> {
-					list.add(each.toHash());
-				});
+			for (In_C each : this.Ins_C) {
+				list.add(each.toHash(encoded[i], encoded[i + 1]));
+				i += 2;
 			}
-			if (this.Outs_C.size() > 0) {
-				this.Outs_C.forEach(each -> {
-					list.add(each.toHash());
-				});
+			for (Out_C each : this.Outs_C) {
+				list.add(each.toHash(encoded[i++]));
 			}
 			if (this.Outs_P.size() > 0) {
 				this.Outs_P.forEach(each -> {
@@ -1,7 +1,9 @@
 package org.sero.cash.superzk.protocol;
 
+import java.util.Iterator;
 import java.util.List;
 
+import org.sero.cash.superzk.crypto.ecc.Point;
 import org.sero.cash.superzk.protocol.czero.Czero;
 import org.sero.cash.superzk.protocol.superzk.SuperZk;
 
@@ -21,6 +23,19 @@ public class Utxo {
 
     public static List<Utxo> decOut(AccountType.TK tk, List<Types.Out> outs) {
         List<Utxo> result = Lists.newArrayList();
+        // traces are compressed together once all outs are decoded
+        List<Point> traces = Lists.newArrayList();
+        List<List<byte[]>> traceNils = Lists.newArrayList();
+        // Z outs are confirmed together up front
+        List<byte[]> zkeys = Lists.newArrayList();
+        List<Types.Out_Z> zouts = Lists.newArrayList();
+        outs.forEach(out -> {
+            if (out.State.OS.Out_O == null && out.State.OS.Out_Z != null) {
+                zkeys.add(Czero.fetchKey(tk, out.State.OS.Out_Z.RPK));
+                zouts.add(out.State.OS.Out_Z);
+            }
+        });
+        Iterator<Types.TDOut> zconfirms = Czero.confirmOutZ(zkeys, zouts).iterator();
         outs.forEach(out -> {
             AccountType.PKr pkr = null;
             boolean isZ = false;
@@ -31,22 +46,16 @@ public class Utxo {
                 dout.Asset = os.Out_O.Asset;
                 dout.Memo = os.Out_O.Memo;
                 dout.Nils.add(out.Root);
-                dout.Nils.add(Czero.genTrace(tk, os.RootCM).toBytes());
+                traces.add(Czero.genTrace(tk, os.RootCM));
+                traceNils.add(dout.Nils);
                 pkr = os.Out_O.Addr;
             } else if (os.Out_Z != null) {
-
-                byte[] key = Czero.fetchKey(tk, os.Out_Z.RPK);
-               
-                Types.TDOut comfirm_out = Czero.confirmOutZ(
-                        key,
-                        os.Out_Z.EInfo,
-                        os.Out_Z.PKr,
-                        os.Out_Z.OutCM
-                );
+                Types.TDOut comfirm_out = zconfirms.next();
                 if (comfirm_out != null) {
                     dout.Asset = comfirm_out.Asset;
                     dout.Memo = comfirm_out.Memo;
-                    dout.Nils.add(Czero.genTrace(tk, os.RootCM).toBytes());
+                    traces.add(Czero.genTrace(tk, os.RootCM));
+                    traceNils.add(dout.Nils);
                     pkr = os.Out_Z.PKr;
                     isZ = true;
                 }
@@ -83,6 +92,11 @@ public class Utxo {
                 result.add(utxo);
             }
         });
+
+        byte[][] traceBytes = Point.batchToBytes(traces.toArray(new Point[0]));
+        for (int i = 0; i < traceBytes.length; i++) {
+            traceNils.get(i).add(traceBytes[i]);
+        }
 		return result;
 	}
 }
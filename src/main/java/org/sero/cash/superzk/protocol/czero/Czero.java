@@ -1,10 +1,15 @@
 package org.sero.cash.superzk.protocol.czero;
 
+import java.nio.ByteBuffer;
+import java.util.List;
+
 import org.sero.cash.superzk.crypto.Blake;
-import org.sero.cash.superzk.crypto.ecc.BitBuffer;
+import org.sero.cash.superzk.crypto.ecc.BaseCache;
 import org.sero.cash.superzk.crypto.ecc.Eddsa;
+import org.sero.cash.superzk.crypto.ecc.EddsaSigner;
 import org.sero.cash.superzk.crypto.ecc.Field;
 import org.sero.cash.superzk.crypto.ecc.Group;
+import org.sero.cash.superzk.crypto.ecc.Pedersen;
 import org.sero.cash.superzk.crypto.ecc.Point;
 import org.sero.cash.superzk.crypto.enc.Chacha20;
 import org.sero.cash.superzk.protocol.AccountType;
@@ -13,12 +18,24 @@ import org.sero.cash.superzk.protocol.Param;
 import org.sero.cash.superzk.protocol.Types;
 import org.sero.cash.superzk.util.Arrays;
 import org.sero.cash.superzk.util.HexUtils;
+import org.sero.cash.superzk.util.LruCache;
 
 import com.google.common.collect.Lists;
 
 public class Czero {
     private static byte[] EMPTY = new byte[32];
-    private static Group outCmBase = new Group("$SROOUTCMGEN".getBytes(), 8, 192, 4);
+    public static Group outCmBase = new Group("$SROOUTCMGEN".getBytes(), 8, 192,
+            Group.windowFor(8, 192, Group.budget("outCmBase", 1 << 20)));
+
+    /*
+     * Same split as Asset's caches, over the Czero generators: currencies get
+     * comb tables for 240-bit values once hot, tickets are plain points.
+     * Sized by superzk.czero.asset.cache and superzk.czero.ticket.cache.
+     */
+    private static final BaseCache CURRENCY_BASES =
+            new BaseCache(Integer.getInteger("superzk.czero.asset.cache", 256), 240, Czero::findAssetCurrency);
+    private static final LruCache<ByteBuffer, Point> TKT_BASES =
+            new LruCache<ByteBuffer, Point>(Integer.getInteger("superzk.czero.ticket.cache", 1024));
 
     public static Point genNil(AccountType.SK sk, Point rootCm) {
         if (!sk.isValid() || !rootCm.isValid()) {
@@ -34,7 +51,7 @@ public class Czero {
         if (hash == null || hash.length == 0 || !sk.isValid() || !pkr.isValid() || !rootCm.isValid()) {
             return null;
         }
-        Point base = pkr.BASEr.add(Param.accountBase.points.get(0));
+        Point base = pkr.BASEr.add(Param.accountBase.point(0));
         return Eddsa.sign(hash, sk.vsk.mul(sk.zsk), base, rootCm);
     }
 
@@ -47,14 +64,33 @@ public class Czero {
         if (hash == null || hash.length == 0 || sign == null || sign.length == 0 || !pkr.isValid() || !rootCm.isValid()) {
             return false;
         }
-        Point base0 = pkr.BASEr.add(Param.accountBase.points.get(0));
+        Point base0 = pkr.BASEr.add(Param.accountBase.point(0));
         return Eddsa.verify(hash, sign, pkr.VPKr, nil, base0, rootCm);
     }
 
+    /**
+     * The verifyNil check as an item for Eddsa.verifyBatch; null, which the
+     * batch reports as invalid, where verifyNil fails before its equations.
+     */
+    public static Eddsa.SigItem nilItem(byte[] hash, byte[] sign, Point nil, AccountType.PKr pkr, Point rootCm) {
+        if (hash == null || hash.length == 0 || sign == null || sign.length == 0 || !pkr.isValid() || !rootCm.isValid()) {
+            return null;
+        }
+        Point base0 = pkr.BASEr.add(Param.accountBase.point(0));
+        return new Eddsa.SigItem(hash, sign, pkr.VPKr, nil, base0, rootCm);
+    }
+
 
     public static byte[] signByPKr(AccountType.SK sk, byte[] msg, AccountType.PKr pkr) {
-        Point base = pkr.BASEr.add(Param.accountBase.points.get(0));
-        return Eddsa.sign(msg, sk.vsk.mul(sk.zsk), base);
+        return signerByPKr(sk, pkr).sign(msg);
+    }
+
+    /**
+     * signByPKr bound to one (sk, pkr), for signing many messages with it.
+     */
+    public static EddsaSigner signerByPKr(AccountType.SK sk, AccountType.PKr pkr) {
+        Point base = pkr.BASEr.add(Param.accountBase.point(0));
+        return new EddsaSigner(sk.vsk.mul(sk.zsk), base);
     }
 
     public static boolean verifyByPKr(byte[] msg, byte[] sign, AccountType.PKr pkr) {
@@ -62,7 +98,7 @@ public class Czero {
         if (msg == null || msg.length == 0 || sign == null || sign.length == 0 || !pkr.isValid()) {
             return false;
         }
-        Point base = pkr.BASEr.add(Param.accountBase.points.get(0));
+        Point base = pkr.BASEr.add(Param.accountBase.point(0));
         return Eddsa.verify(msg, sign, pkr.VPKr, base);
     }
 
@@ -92,20 +128,21 @@ public class Czero {
         if (!asset.isValid() || !pkr.isValid()) {
             return null;
         }
-        Point asset_cc = genAssetCurrency(asset.tkn_currency).mult(asset.tkn_value);
+        return new Pedersen(outCmBase)
+                .update(genAssetCC(asset))
+                .update(memo)
+                .update(pkr.VPKr)
+                .update(pkr.BASEr)
+                .update(rsk)
+                .finish();
+    }
+
+    private static Point genAssetCC(Asset asset) {
+        Point asset_cc = CURRENCY_BASES.get(asset.tkn_currency).mult(asset.tkn_value);
         if (!Arrays.equals(asset.tkt_value, EMPTY)) {
             asset_cc = asset_cc.add(genAssetTkt(asset.tkt_category, asset.tkt_value));
         }
-        byte[] blob = Arrays.concat(
-                asset_cc.toBytes(),
-                memo,
-                pkr.VPKr.toBytes(),
-                pkr.BASEr.toBytes(),
-                rsk.toBytes()
-        );
-
-        assert (blob.length == 192);
-        return outCmBase.mult(new BitBuffer(blob));
+        return asset_cc;
     }
 
 
@@ -121,7 +158,54 @@ public class Czero {
         return new Types.TDOut(info.asset.toAsset(), info.memo, Lists.newArrayList());
     }
 
+    /**
+     * confirmOutZ over many outputs, keys.get(i) being the fetchKey of
+     * outs.get(i). The asset commitments are encoded with one field
+     * inversion and the out commitments normalized with another. The result
+     * holds null where confirmOutZ would return null.
+     */
+    public static List<Types.TDOut> confirmOutZ(List<byte[]> keys, List<Types.Out_Z> outs) {
+        assert (keys.size() == outs.size());
+        int n = outs.size();
+        Info[] infos = new Info[n];
+        Point[] asset_ccs = new Point[n];
+        for (int i = 0; i < n; i++) {
+            Info info = decEInfo(outs.get(i).EInfo, keys.get(i), true);
+            if (info.asset.isValid() && outs.get(i).PKr.isValid()) {
+                infos[i] = info;
+                asset_ccs[i] = genAssetCC(info.asset);
+            } else {
+                asset_ccs[i] = Point.ZERO;
+            }
+        }
+        byte[][] encoded = Point.batchToBytes(asset_ccs);
+
+        Pedersen[] engines = new Pedersen[n];
+        for (int i = 0; i < n; i++) {
+            engines[i] = new Pedersen(outCmBase);
+            if (infos[i] != null) {
+                AccountType.PKr pkr = outs.get(i).PKr;
+                engines[i].update(encoded[i]).update(infos[i].memo).update(pkr.VPKr).update(pkr.BASEr).update(infos[i].rsk);
+            }
+        }
+        Point[] outCMs = Pedersen.finish(engines);
+
+        List<Types.TDOut> ret = Lists.newArrayListWithCapacity(n);
+        for (int i = 0; i < n; i++) {
+            if (infos[i] == null || !Arrays.equals(outs.get(i).OutCM, outCMs[i].toBytes())) {
+                ret.add(null);
+            } else {
+                ret.add(new Types.TDOut(infos[i].asset.toAsset(), infos[i].memo, Lists.newArrayList()));
+            }
+        }
+        return ret;
+    }
+
     public static Point genAssetCurrency(byte[] currency) {
+        return CURRENCY_BASES.point(currency);
+    }
+
+    private static Point findAssetCurrency(byte[] currency) {
         assert (currency.length == 32);
         Point ret = Point.Blake2b.findPoint("$SROASSETCY".getBytes(), currency);
         if (ret == null) {
@@ -134,6 +218,10 @@ public class Czero {
         assert (category.length == 32);
         assert (value.length == 32);
         byte[] h = Arrays.concat(category, value);
+        return TKT_BASES.get(ByteBuffer.wrap(h), k -> findAssetTkt(h));
+    }
+
+    private static Point findAssetTkt(byte[] h) {
         Point ret = Point.Blake2b.findPoint("$SROASSETTK".getBytes(), Blake.blake2b("$SROASSETTK.H".getBytes(), h));
         if (ret == null) {
             throw new RuntimeException("find point error");
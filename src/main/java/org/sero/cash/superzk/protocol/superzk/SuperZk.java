@@ -2,8 +2,10 @@ package org.sero.cash.superzk.protocol.superzk;
 
 import org.sero.cash.superzk.crypto.Blake;
 import org.sero.cash.superzk.crypto.ecc.Eddsa;
+import org.sero.cash.superzk.crypto.ecc.EddsaSigner;
 import org.sero.cash.superzk.crypto.ecc.Field;
 import org.sero.cash.superzk.crypto.ecc.Point;
+import org.sero.cash.superzk.crypto.ecc.PreparedPublicKey;
 import org.sero.cash.superzk.crypto.enc.Chacha20;
 import org.sero.cash.superzk.protocol.AccountType;
 import org.sero.cash.superzk.protocol.Asset;
@@ -22,9 +24,16 @@ public class SuperZk {
     }
 
     public static byte[] signPKr(AccountType.SK sk, byte[] h, AccountType.PKr pkr) {
+        return signerPKr(sk, pkr).sign(h);
+    }
+
+    /**
+     * signPKr bound to one (sk, pkr), for signing many hashes with it.
+     */
+    public static EddsaSigner signerPKr(AccountType.SK sk, AccountType.PKr pkr) {
         Field.FR hr_z = Account.toHr_Z(pkr.BASEr.mult(sk.vsk));
         Field.FR zskr = hr_z.add(sk.zsk);
-        return Eddsa.sign(h, zskr, Param.accountBase);
+        return new EddsaSigner(zskr, Param.accountBase);
     }
 
     public static byte[][] genPKrKey(AccountType.PKr pkr, Field.FR rsk) {
@@ -35,7 +44,7 @@ public class SuperZk {
     }
 
     public static boolean verifyPKr(byte[] h, byte[] sign, Account.PKr pkr) {
-        return Eddsa.verify(h, sign, pkr.ZPKr, Param.accountBase);
+        return Eddsa.verify(h, sign, PreparedPublicKey.cached(pkr.ZPKr), Param.accountBase);
     }
 
 
@@ -55,8 +64,25 @@ public class SuperZk {
     }
 
     public static boolean verifyNil(byte[] h, byte[] sign, byte[] nil, Point cm, Account.PKr pkr) {
-        Param.clearFlag(nil);
-        return Eddsa.verify(h, sign, pkr.VPKr, Point.fromBytes(nil), Param.accountBase, cm);
+        return Eddsa.verify(h, sign, pkr.VPKr, decodeNil(nil), Param.accountBase, cm);
+    }
+
+    /**
+     * The verifyNil check as an item for Eddsa.verifyBatch, so the nil proofs
+     * of a whole tx can be verified together.
+     */
+    public static Eddsa.SigItem nilItem(byte[] h, byte[] sign, byte[] nil, Point cm, Account.PKr pkr) {
+        return new Eddsa.SigItem(h, sign, pkr.VPKr, decodeNil(nil), Param.accountBase, cm);
+    }
+
+    /*
+     * The nil point, decoded from a copy: both the flag and fromBytes would
+     * otherwise clear bits of the caller's array.
+     */
+    private static Point decodeNil(byte[] nil) {
+        byte[] buf = nil.clone();
+        Param.clearFlag(buf);
+        return Point.fromBytes(buf);
     }
 
     public static Point genZPKa(Account.PKr pkr, Field.FR a) {
@@ -0,0 +1,71 @@
+package org.sero.cash.superzk.util;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * A bounded map that evicts its least recently used entry. All methods lock
+ * the cache; load functions run outside the lock, so two threads missing on
+ * the same key may both compute it and the first result stored wins.
+ */
+public class LruCache<K, V> {
+    private final int capacity;
+    private final LinkedHashMap<K, V> map;
+
+    public LruCache(final int capacity) {
+        if (capacity < 1) {
+            throw new RuntimeException("cache capacity must be positive");
+        }
+        this.capacity = capacity;
+        this.map = new LinkedHashMap<K, V>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+                return this.size() > capacity;
+            }
+        };
+    }
+
+    public int capacity() {
+        return this.capacity;
+    }
+
+    public synchronized int size() {
+        return this.map.size();
+    }
+
+    public synchronized V get(K key) {
+        return this.map.get(key);
+    }
+
+    public synchronized void put(K key, V value) {
+        this.map.put(key, value);
+    }
+
+    public synchronized void clear() {
+        this.map.clear();
+    }
+
+    /**
+     * The cached value for key, or load(key) stored under it. A null result
+     * is returned but not cached.
+     */
+    public V get(K key, Function<K, V> load) {
+        V value = this.get(key);
+        if (value != null) {
+            return value;
+        }
+        value = load.apply(key);
+        if (value == null) {
+            return null;
+        }
+        synchronized (this) {
+            V prev = this.map.get(key);
+            if (prev != null) {
+                return prev;
+            }
+            this.map.put(key, value);
+        }
+        return value;
+    }
+}
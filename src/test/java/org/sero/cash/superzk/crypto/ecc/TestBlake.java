@@ -16,6 +16,28 @@ public class TestBlake {
         assertTrue(new String(Hex.encode(bytes)).compareTo("0c3d6a0a75673fcf6c0a9fa36b95cb5b80ecd0fcebc4772f6a6e341edfd634cb") == 0);
     }
 
+    @Test
+    public void testBlake2bInputs() {
+        byte[] a = Arrays.randomBytes(32);
+        byte[] b = Arrays.randomBytes(100);
+        byte[] expected = Blake.blake2b("123456789abc".getBytes(), Arrays.concat(a, b));
+        for (int i = 0; i < 3; i++) {
+            assertTrue(Arrays.equals(Blake.blake2b("123456789abc".getBytes(), a, b), expected));
+            assertTrue(Arrays.equals(Blake.blake2b("other".getBytes(), a), Blake.blake2b("other".getBytes(), new byte[][]{a})));
+        }
+
+        byte[] out = new byte[40];
+        Blake.blake2bInto(out, 8, "123456789abc".getBytes(), a, new byte[0], b);
+        assertTrue(Arrays.equals(Arrays.slice(out, 8, 40), expected));
+
+        try {
+            Blake.blake2b("123456789abc".getBytes(), a, null);
+            assertTrue(false);
+        } catch (NullPointerException e) {
+        }
+        assertTrue(Arrays.equals(Blake.blake2b("123456789abc".getBytes(), a, b), expected));
+    }
+
     @Test
     public void testBlake2s() {
         byte[] data = Arrays.rightPadBytes(new byte[]{1}, 64);
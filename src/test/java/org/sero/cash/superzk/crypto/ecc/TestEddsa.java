@@ -1,6 +1,8 @@
 package org.sero.cash.superzk.crypto.ecc;
 
 import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
 
 import org.junit.Test;
 import org.sero.cash.superzk.util.Arrays;
@@ -50,4 +52,251 @@ public class TestEddsa {
         }
     }
 
+    @Test
+    public void testSigner() {
+        Group base0 = new Group("5dfbb35a38ffdcab".getBytes(), 1, 256, 8);
+        Point base1 = Point.randomPt();
+        Field.FR sk = Field.randomFR();
+        EddsaSigner signer = new EddsaSigner(sk, base0);
+        EddsaSigner signer_n = new EddsaSigner(sk, base0, base1);
+        assert (signer.isValid() && signer_n.isValid());
+        assert (signer.publicKey().isEqualTo(base0.mult(sk)));
+        assert (signer_n.publicKey1().isEqualTo(base1.mult(sk)));
+        for (int i = 0; i < 10; i++) {
+            byte[] msg = Arrays.randomBytes(32);
+            assert (Eddsa.verify(msg, signer.sign(msg), signer.publicKey(), base0));
+            assert (Eddsa.verify(msg, signer_n.sign(msg), signer_n.publicKey(), signer_n.publicKey1(), base0, base1));
+        }
+        EddsaSigner zero = new EddsaSigner(Field.FR.ZERO, base0, base1);
+        assert (!zero.isValid() && zero.sign(Arrays.randomBytes(32)) == null);
+    }
+
+    @Test
+    public void testPreparedPublicKey() {
+        Group base = new Group("5dfbb35a38ffdcab".getBytes(), 1, 256, 8);
+        Field.FR sk = Field.randomFR();
+        Point pk = base.mult(sk);
+        PreparedPublicKey prepared = PreparedPublicKey.cached(pk);
+        assert (PreparedPublicKey.cached(pk.toBytes()) == prepared);
+        assert (new PreparedPublicKey(pk, true).mult(sk).isEqualTo(pk.mult(sk)));
+        // past HOT_USES the key switches to its comb table
+        for (int i = 0; i < 20; i++) {
+            byte[] msg = Arrays.randomBytes(32);
+            byte[] sign = Eddsa.sign(msg, sk, base);
+            assert (Eddsa.verify(msg, sign, prepared, base));
+            assert (!Eddsa.verify(Arrays.randomBytes(32), sign, prepared, base));
+        }
+    }
+
+    @Test
+    public void testVerifyBatch() {
+        Group base0 = new Group("5dfbb35a38ffdcab".getBytes(), 1, 256, 8);
+        Point base1 = Point.randomPt();
+        List<Eddsa.SigItem> items = new ArrayList<Eddsa.SigItem>();
+        for (int i = 0; i < 40; i++) {
+            Mult base = i % 3 == 0 ? base1 : base0;
+            Field.FR sk = Field.randomFR();
+            byte[] msg = Arrays.randomBytes(32);
+            Point pk = base.mult(sk);
+            byte[] sign = Eddsa.sign(msg, sk, base);
+            if (i % 7 == 5) {
+                msg = Arrays.randomBytes(32);
+            } else if (i % 11 == 3) {
+                sign[40] ^= 1;
+            } else if (i == 20) {
+                pk = pk.add(base1);
+            }
+            items.add(new Eddsa.SigItem(msg, sign, pk, base));
+        }
+
+        boolean[] ret = Eddsa.verifyBatch(items);
+        int valid = 0;
+        for (int i = 0; i < items.size(); i++) {
+            Eddsa.SigItem item = items.get(i);
+            assert (ret[i] == Eddsa.verify(item.msg, item.sign, item.pks[0], item.bases[0]));
+            valid += ret[i] ? 1 : 0;
+        }
+        assert (valid == 30);
+        assert (Eddsa.verifyBatch(items.subList(0, 5))[4]);
+        assert (Eddsa.verifyBatch(new ArrayList<Eddsa.SigItem>()).length == 0);
+    }
+
+    /*
+     * (0, -1), the point of order 2.
+     */
+    private static final Point TORSION = new Point(Field.FQ.ZERO, Field.FQ.ONE.negate(), Field.FQ.ONE);
+
+    @Test
+    public void testVerifyBatchTorsion() {
+        Group base = new Group("5dfbb35a38ffdcab".getBytes(), 1, 256, 8);
+        assert (!TORSION.isZero() && TORSION.twice().isZero() && !TORSION.isInSubgroup());
+        assert (base.point(0).isInSubgroup() && !base.point(0).add(TORSION).isInSubgroup());
+        for (int trial = 0; trial < 10; trial++) {
+            List<Eddsa.SigItem> items = new ArrayList<Eddsa.SigItem>();
+            for (int i = 0; i < 2; i++) {
+                // R' = a * B + (0, -1), S = a + H(R', PK, msg) * sk
+                Field.FR sk = Field.randomFR();
+                Field.FR a = Field.randomFR();
+                Point pk = base.mult(sk);
+                byte[] msg = Arrays.randomBytes(32);
+                byte[] r = base.mult(a).add(TORSION).toBytes();
+                Field.FR m = Field.newFR(Eddsa.hash_2(r, pk.toBytes(), msg));
+                byte[] sign = Arrays.concat(r, a.add(m.mul(sk)).toBytes());
+                assert (!Eddsa.verify(msg, sign, pk, base));
+                items.add(new Eddsa.SigItem(msg, sign, pk, base));
+                items.add(new Eddsa.SigItem(Arrays.randomBytes(32), sign, pk, base));
+            }
+            // cofactored: the shifted R passes, the wrong message does not
+            boolean[] ret = Eddsa.verifyBatch(items);
+            assert (ret[0] && !ret[1] && ret[2] && !ret[3]);
+            assert (Eddsa.verifyBatch(items.subList(0, 1))[0]);
+        }
+    }
+
+    @Test
+    public void testVerifyBatchTorsion_n() {
+        Group base0 = new Group("5dfbb35a38ffdcab".getBytes(), 1, 256, 8);
+        Point base1 = Point.randomPt();
+        for (int trial = 0; trial < 10; trial++) {
+            List<Eddsa.SigItem> items = new ArrayList<Eddsa.SigItem>();
+            for (int i = 0; i < 2; i++) {
+                // R0' = a * B0 + (0, -1), S = a + H(R0', R1, PK0, PK1, msg) * sk
+                Field.FR sk = Field.randomFR();
+                Field.FR a = Field.randomFR();
+                Point pk0 = base0.mult(sk);
+                Point pk1 = base1.mult(sk);
+                byte[] msg = Arrays.randomBytes(32);
+                byte[] r0 = base0.mult(a).add(TORSION).toBytes();
+                byte[] r1 = base1.mult(a).toBytes();
+                Field.FR m = Field.newFR(Eddsa.hash_2_n(r0, r1, pk0.toBytes(), pk1.toBytes(), msg));
+                byte[] sign = Arrays.concat(a.add(m.mul(sk)).toBytes(), r0, r1);
+                assert (!Eddsa.verify(msg, sign, pk0, pk1, base0, base1));
+                items.add(new Eddsa.SigItem(msg, sign, pk0, pk1, base0, base1));
+                items.add(new Eddsa.SigItem(msg, sign, pk0, pk1.add(base1), base0, base1));
+            }
+            boolean[] ret = Eddsa.verifyBatch(items);
+            assert (ret[0] && !ret[1] && ret[2] && !ret[3]);
+        }
+    }
+
+    @Test
+    public void testVerifySmallOrderBase() {
+        // S * (0, -1) == 0 and -m * (0, -1) == R == (0, -1): the equation
+        // holds, only the S * B check rejects
+        Point R = TORSION;
+        byte[] msg;
+        Field.FR m;
+        do {
+            msg = Arrays.randomBytes(32);
+            m = Field.newFR(Eddsa.hash_2(R.toBytes(), TORSION.toBytes(), msg));
+        } while (TORSION.mult(m.negate()).isZero());
+        Field.FR S;
+        do {
+            S = Field.randomFR();
+        } while (!TORSION.mult(S).isZero());
+        byte[] sign = Arrays.concat(R.toBytes(), S.toBytes());
+        assert (Point.multiScalar(new Field.FR[]{S, m.negate()}, new Mult[]{TORSION, TORSION}).isEqualTo(R));
+        assert (!Eddsa.verify(msg, sign, TORSION, TORSION));
+        assert (!Eddsa.verifyBatch(java.util.Arrays.asList(new Eddsa.SigItem(msg, sign, TORSION, TORSION)))[0]);
+
+        Group base0 = new Group("5dfbb35a38ffdcab".getBytes(), 1, 256, 8);
+        Field.FR sk = Field.randomFR();
+        Point pk0 = base0.mult(sk);
+        byte[] sign_n;
+        do {
+            Field.FR a = Field.randomFR();
+            byte[] r0 = base0.mult(a).toBytes();
+            msg = Arrays.randomBytes(32);
+            m = Field.newFR(Eddsa.hash_2_n(r0, R.toBytes(), pk0.toBytes(), TORSION.toBytes(), msg));
+            S = a.add(m.mul(sk));
+            sign_n = Arrays.concat(S.toBytes(), r0, R.toBytes());
+        } while (TORSION.mult(m.negate()).isZero() || !TORSION.mult(S).isZero());
+        assert (!Eddsa.verify(msg, sign_n, pk0, TORSION, base0, TORSION));
+        assert (!Eddsa.verifyBatch(java.util.Arrays.asList(new Eddsa.SigItem(msg, sign_n, pk0, TORSION, base0, TORSION)))[0]);
+    }
+
+    @Test
+    public void testVerifyBatchSpeed() {
+        Group base = new Group("5dfbb35a38ffdcab".getBytes(), 1, 256, 8);
+        List<Eddsa.SigItem> items = new ArrayList<Eddsa.SigItem>();
+        for (int i = 0; i < 64; i++) {
+            Field.FR sk = Field.randomFR();
+            byte[] msg = Arrays.randomBytes(32);
+            items.add(new Eddsa.SigItem(msg, Eddsa.sign(msg, sk, base), base.mult(sk), base));
+        }
+        assert (faster(() -> Eddsa.verifyBatch(items), () -> {
+            for (Eddsa.SigItem item : items) {
+                assert (Eddsa.verify(item.msg, item.sign, item.pks[0], item.bases[0]));
+            }
+        }));
+    }
+
+    @Test
+    public void testVerifyBatchSpeed_n() {
+        Group base0 = new Group("5dfbb35a38ffdcab".getBytes(), 1, 256, 8);
+        List<Eddsa.SigItem> items = new ArrayList<Eddsa.SigItem>();
+        for (int i = 0; i < 64; i++) {
+            // a fresh Point base per item, as in the nil proofs
+            Point base1 = Point.randomPt();
+            Field.FR sk = Field.randomFR();
+            byte[] msg = Arrays.randomBytes(32);
+            byte[] sign = Eddsa.sign(msg, sk, base0, base1);
+            items.add(new Eddsa.SigItem(msg, sign, base0.mult(sk), base1.mult(sk), base0, base1));
+        }
+        assert (faster(() -> Eddsa.verifyBatch(items), () -> {
+            for (Eddsa.SigItem item : items) {
+                assert (Eddsa.verify(item.msg, item.sign, item.pks[0], item.pks[1], item.bases[0], item.bases[1]));
+            }
+        }));
+    }
+
+    /*
+     * Whether the best of a few timed runs of batch beats that of loop.
+     */
+    static boolean faster(Runnable batch, Runnable loop) {
+        long best = Long.MAX_VALUE;
+        long bestLoop = Long.MAX_VALUE;
+        for (int round = 0; round < 4; round++) {
+            long t0 = System.nanoTime();
+            batch.run();
+            long t1 = System.nanoTime();
+            loop.run();
+            long t2 = System.nanoTime();
+            best = Math.min(best, t1 - t0);
+            bestLoop = Math.min(bestLoop, t2 - t1);
+        }
+        return best < bestLoop;
+    }
+
+    @Test
+    public void testVerifyBatch_n() {
+        Group base0 = new Group("5dfbb35a38ffdcab".getBytes(), 1, 256, 8);
+        List<Eddsa.SigItem> items = new ArrayList<Eddsa.SigItem>();
+        for (int i = 0; i < 24; i++) {
+            Point base1 = Point.randomPt();
+            Field.FR sk = Field.randomFR();
+            byte[] msg = Arrays.randomBytes(32);
+            byte[] sign = Eddsa.sign(msg, sk, base0, base1);
+            Point pk1 = base1.mult(sk);
+            if (i % 5 == 2) {
+                pk1 = pk1.add(base1);
+            }
+            items.add(new Eddsa.SigItem(msg, sign, base0.mult(sk), pk1, base0, base1));
+            if (i % 4 == 0) {
+                byte[] single = Eddsa.sign(msg, sk, base0);
+                items.add(new Eddsa.SigItem(msg, single, base0.mult(sk), base0));
+            }
+        }
+        items.add(null);
+
+        boolean[] ret = Eddsa.verifyBatch(items);
+        for (int i = 0; i < items.size() - 1; i++) {
+            Eddsa.SigItem item = items.get(i);
+            boolean expected = item.pks.length == 1
+                    ? Eddsa.verify(item.msg, item.sign, item.pks[0], item.bases[0])
+                    : Eddsa.verify(item.msg, item.sign, item.pks[0], item.pks[1], item.bases[0], item.bases[1]);
+            assert (ret[i] == expected);
+        }
+        assert (!ret[items.size() - 1]);
+    }
 }
@@ -5,6 +5,7 @@ import static org.junit.Assert.assertTrue;
 import java.math.BigInteger;
 
 import org.junit.Test;
+import org.sero.cash.superzk.util.Arrays;
 
 public class TestField {
 
@@ -38,4 +39,72 @@ public class TestField {
         assertTrue(sqrt != null);
         assertTrue(sqrt.square().isEqualTo(fq1));
     }
+
+    @Test
+    public void testSqrt() {
+        BigInteger q = Constants.FQ_MODULUS;
+        BigInteger legendre = q.subtract(BigInteger.ONE).shiftRight(1);
+        for (int i = 0; i < 200; i++) {
+            Field.FQ x = Field.newFQ(Arrays.randomBytes(32));
+            Field.FQ root = x.square().sqrt();
+            assertTrue(root.square().isEqualTo(x.square()));
+
+            boolean residue = x.toBigNumber().modPow(legendre, q).equals(BigInteger.ONE);
+            Field.FQ sqrt = x.sqrt();
+            assertTrue(residue ? sqrt.square().isEqualTo(x) : sqrt == null);
+
+            Field.FQ d = Field.newFQ(Arrays.randomBytes(32));
+            Field.FQ ratio = Sqrt.ratio(x, d);
+            boolean square = x.mul(d).toBigNumber().modPow(legendre, q).equals(BigInteger.ONE);
+            assertTrue(square ? ratio.square().mul(d).isEqualTo(x) : ratio == null);
+        }
+        assertTrue(Field.FQ.ZERO.sqrt().isZero());
+        assertTrue(Sqrt.ratio(Field.FQ.ONE, Field.FQ.ZERO) == null);
+    }
+
+    @Test
+    public void testMatchesBigInteger() {
+        BigInteger q = Constants.FQ_MODULUS;
+        BigInteger r = Constants.FR_MODULUS;
+        for (int i = 0; i < 1000; i++) {
+            BigInteger a = new BigInteger(1, Arrays.randomBytes(32));
+            BigInteger b = new BigInteger(1, Arrays.randomBytes(32));
+            Field.FQ fa = Field.newFQ(a);
+            Field.FQ fb = Field.newFQ(b);
+
+            assertTrue(fa.toBigNumber().equals(a.mod(q)));
+            assertTrue(fa.add(fb).toBigNumber().equals(a.add(b).mod(q)));
+            assertTrue(fa.sub(fb).toBigNumber().equals(a.subtract(b).mod(q)));
+            assertTrue(fa.mul(fb).toBigNumber().equals(a.multiply(b).mod(q)));
+            assertTrue(fa.square().toBigNumber().equals(a.multiply(a).mod(q)));
+            assertTrue(fa.negate().toBigNumber().equals(a.negate().mod(q)));
+            assertTrue(fa.invert().toBigNumber().equals(a.modInverse(q)));
+
+            Field.FR ra = Field.newFR(a);
+            Field.FR rb = Field.newFR(b);
+            assertTrue(ra.mul(rb).toBigNumber().equals(a.multiply(b).mod(r)));
+            assertTrue(ra.add(rb).toBigNumber().equals(a.add(b).mod(r)));
+            assertTrue(ra.invert().toBigNumber().equals(a.modInverse(r)));
+
+            byte[] data = Arrays.randomBytes(32);
+            BigInteger d = new BigInteger(1, Arrays.reverse(Arrays.copy(data)));
+            assertTrue(Field.newFR(data).toBigNumber().equals(d.mod(r)));
+            assertTrue(Arrays.equals(Field.newFQ(data).toBytes(), Arrays.rightPadBytes(Arrays.reverse(d.mod(q).toByteArray()), 32)));
+        }
+        assertTrue(Field.FQ.ZERO.invert().isZero());
+        assertTrue(Field.newFQ(q.subtract(BigInteger.ONE)).add(Field.FQ.ONE).isZero());
+    }
+
+    @Test
+    public void testBatchInvert() {
+        Field.FQ[] values = new Field.FQ[8];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = i == 3 ? Field.FQ.ZERO : Field.newFQ(Arrays.randomBytes(32));
+        }
+        Field.FQ[] invs = Field.batchInvert(values);
+        for (int i = 0; i < values.length; i++) {
+            assertTrue(invs[i].isEqualTo(values[i].invert()));
+        }
+        assertTrue(Field.batchInvert(new Field.FQ[0]).length == 0);
+    }
 }
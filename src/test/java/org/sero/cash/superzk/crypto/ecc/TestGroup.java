@@ -1,6 +1,16 @@
 package org.sero.cash.superzk.crypto.ecc;
 
+import java.io.File;
+import java.io.IOException;
 import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 
 import org.junit.Test;
 import org.sero.cash.superzk.util.Arrays;
@@ -13,6 +23,174 @@ public class TestGroup {
         test_mul(3, 90, 5);
         test_mul(4, 128, 8);
         test_mul(1, 256, 8);
+        test_mul(2, 100, 2);
+        test_mul(1, 256, 11);
+    }
+
+    @Test
+    public void testComb() {
+        Group windowed = new Group("COMB".getBytes(), 1, 256, 4);
+        Group[] combs = new Group[]{
+                Group.comb("COMB".getBytes(), 4, 2, 1),
+                Group.comb("COMB".getBytes(), 4, 5, 3),
+                Group.comb("COMB".getBytes(), 4, 8, 4),
+                Group.comb("COMB".getBytes(), 4, 10, 7),
+        };
+        for (int i = 0; i < 4; i++) {
+            Field.FR fr = i == 0 ? Field.FR.ONE.negate() : Field.randomFR();
+            Point expected = windowed.mult(fr);
+            assertTrue(expected.isEqualTo(windowed.point(0).mult(fr)));
+            for (Group comb : combs) {
+                assertTrue(comb.mult(fr).isEqualTo(expected));
+            }
+        }
+        assertTrue(combs[0].mult(Field.FR.ZERO).isZero());
+        assertTrue(Comb.teethFor(4, 1280 << 10) == 10);
+    }
+
+    @Test
+    public void testBaseCache() {
+        int[] finds = new int[1];
+        BaseCache cache = new BaseCache(2, 40, key -> {
+            finds[0]++;
+            return Point.Blake2b.findPoint("BASES".getBytes(), key);
+        });
+        byte[] key = Arrays.rightPadBytes("A".getBytes(), 32);
+        Point base = Point.Blake2b.findPoint("BASES".getBytes(), key);
+        Field.FR small = Field.newFR(BigInteger.ONE.shiftLeft(40).subtract(BigInteger.ONE));
+        Field.FR[] vals = new Field.FR[]{small, small.negate(), Field.newFR(BigInteger.ONE.shiftLeft(40)), Field.randomFR()};
+        for (int i = 0; i < 40; i++) {
+            Field.FR val = vals[i % vals.length];
+            assertTrue(cache.get(key).mult(val).isEqualTo(base.mult(val)));
+        }
+        assertTrue(finds[0] == 1);
+        assertFalse(cache.get(key) instanceof Point);
+
+        Comb comb = new Comb(base, 40, 5, 2);
+        assertTrue(comb.fits(small) && !comb.fits(small.add(Field.FR.ONE)));
+        assertTrue(comb.mult(small).isEqualTo(base.mult(small)));
+
+        cache.point(Arrays.rightPadBytes("B".getBytes(), 32));
+        cache.point(Arrays.rightPadBytes("C".getBytes(), 32));
+        assertTrue(cache.size() == 2);
+        cache.point(key);
+        assertTrue(finds[0] == 4);
+    }
+
+    @Test
+    public void testBitReader() {
+        byte[] buf = Arrays.randomBytes(40);
+        for (int start = 0; start < 24; start += 5) {
+            BitReader reader = new BitReader(buf, start, 300);
+            BitBuffer bits = new BitBuffer(buf, start, 300);
+            for (int pos = 0; pos < 300; pos += 7) {
+                int len = Math.min(7, 300 - pos);
+                int expected = BitBuffer.from(bits, pos, len).toBigInteger().intValue();
+                assertTrue(reader.next(7) == expected);
+            }
+            assertTrue(reader.seek(296).next(16) == BitBuffer.from(bits, 296, 4).toBigInteger().intValue());
+            assertTrue(reader.seek(10).next(16, 14) == BitBuffer.from(bits, 10, 4).toBigInteger().intValue());
+        }
+        ByteBuffer direct = ByteBuffer.allocateDirect(40);
+        direct.put(buf).position(8);
+        assertTrue(new BitReader(direct).next(24) == new BitBuffer(buf, 64, 24).toBigInteger().intValue());
+    }
+
+    @Test
+    public void testPedersen() {
+        Group group = new Group("PEDERSEN".getBytes(), 8, 64, 5);
+        Pedersen engine = new Pedersen(group);
+        for (int len : new int[]{0, 5, 8, 20, 32}) {
+            byte[] blob = Arrays.randomBytes(len);
+            for (int off = 0; off < len; off += 3) {
+                engine.update(blob, off, Math.min(3, len - off));
+            }
+            assertTrue(engine.finish().isEqualTo(group.mult(new BitReader(blob))));
+        }
+
+        Point point = Point.randomPt();
+        Field.FR fr = Field.randomFR();
+        Point expected = group.mult(new BitReader(Arrays.concat(point.toBytes(), fr.toBytes())));
+        assertTrue(Pedersen.finish(engine.update(point).update(fr))[0].isEqualTo(expected));
+    }
+
+    @Test
+    public void testWindowFor() {
+        assertTrue(Group.windowFor(1, 256, 1280 << 10) == 8);
+        assertTrue(Group.windowFor(10, 128, 1 << 20) == 4);
+        assertTrue(Group.windowFor(1, 256, 0) == Group.MIN_WINDOW);
+        for (int w = Group.MIN_WINDOW; w < Group.MAX_WINDOW; w++) {
+            assertTrue(Group.tableBytes(1, 256, w) < Group.tableBytes(1, 256, w + 1));
+        }
+    }
+
+    @Test
+    public void testTableFile() throws IOException {
+        Group group = new Group("TABLE".getBytes(), 2, 64, 4);
+        File dir = Files.createTempDirectory("tables").toFile();
+        group.writeTable(dir);
+        File file = new File(dir, "org/sero/cash/superzk/crypto/ecc/" + TableFile.resourceName("TABLE".getBytes(), 2, 64, 4));
+        byte[] data = Files.readAllBytes(file.toPath());
+
+        Group loaded = new Group("TABLE".getBytes(), 2, 64, 4);
+        assertTrue(TableFile.load(loaded, ByteBuffer.wrap(data)));
+        for (int j = 0; j < 2; j++) {
+            assertTrue(loaded.point(j).isEqualTo(group.point(j)));
+            for (int k = 0; k < group.digits(); k++) {
+                assertTrue(loaded.table(j)[group.windows() - 1][k].isEqualTo(group.table(j)[group.windows() - 1][k]));
+            }
+        }
+        byte[] buf = Arrays.randomBytes(16);
+        BitBuffer bits = new BitBuffer(buf, 0, 128);
+        assertTrue(loaded.mult(bits).isEqualTo(group.mult(bits)));
+
+        assertFalse(TableFile.load(new Group("TABLE".getBytes(), 2, 64, 8), ByteBuffer.wrap(data)));
+        data[100] ^= 1;
+        assertFalse(TableFile.load(new Group("TABLE".getBytes(), 2, 64, 4), ByteBuffer.wrap(data)));
+    }
+
+    @Test
+    public void testCombTableFile() throws IOException {
+        Group group = Group.comb("COMBTABLE".getBytes(), 4, 5, 3);
+        File dir = Files.createTempDirectory("tables").toFile();
+        group.writeTable(dir);
+        int bits = Constants.FR_MODULUS.bitLength();
+        File file = new File(dir, "org/sero/cash/superzk/crypto/ecc/" + TableFile.combResourceName("COMBTABLE".getBytes(), bits, 5, 3));
+        byte[] data = Files.readAllBytes(file.toPath());
+
+        Group loaded = Group.comb("COMBTABLE".getBytes(), 4, 5, 3);
+        Comb comb = new Comb(loaded.point(0), 5, 3);
+        Comb built = new Comb(group.point(0), 5, 3);
+        assertTrue(TableFile.load(loaded, comb, ByteBuffer.wrap(data)));
+        for (int u = 0; u < 1 << 5; u++) {
+            assertTrue(comb.table()[2][u].isEqualTo(built.table()[2][u]));
+        }
+        Field.FR fr = Field.randomFR();
+        assertTrue(comb.mult(fr).isEqualTo(group.mult(fr)));
+
+        assertFalse(TableFile.load(loaded, new Comb(loaded.point(0), 6, 3), ByteBuffer.wrap(data)));
+        assertFalse(TableFile.load(Group.comb("OTHER".getBytes(), 4, 5, 3), comb, ByteBuffer.wrap(data)));
+        data[100] ^= 1;
+        assertFalse(TableFile.load(loaded, new Comb(loaded.point(0), 5, 3), ByteBuffer.wrap(data)));
+    }
+
+    @Test
+    public void testWarmUp() {
+        Group group = new Group("WARMUP".getBytes(), 4, 64, 4);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            CompletableFuture<Void> done = group.warmUp(executor);
+            byte[] buf = Arrays.randomBytes(32);
+            // races the warm-up for the same segments
+            Point ret = group.mult(new BitBuffer(buf, 0, 256));
+            done.join();
+            for (int j = 0; j < 4; j++) {
+                assertTrue(group.table(j)[0][1].isEqualTo(group.point(j)));
+            }
+            assertTrue(ret.isEqualTo(group.mult(new BitBuffer(buf, 0, 256))));
+        } finally {
+            executor.shutdown();
+        }
     }
 
     public void test_mul(int snum, int bitnum, int cnum) {
@@ -30,7 +208,7 @@ public class TestGroup {
             Point pt = Point.ZERO;
             for (int j = 0; j < snum; j++) {
                 // @ts-ignore
-                Point base = group.indexPoints.get(j).get("1");
+                Point base = group.point(j);
                 if (base != null) {
                     BigInteger val = new BitBuffer(buf, j * bitnum, bitnum).toBigInteger();
                     pt = pt.add(base.mult(Field.newFR(val)));
@@ -2,7 +2,11 @@ package org.sero.cash.superzk.crypto.ecc;
 
 import static org.junit.Assert.assertTrue;
 
+import java.math.BigInteger;
+
 import org.junit.Test;
+import org.sero.cash.superzk.crypto.Blake;
+import org.sero.cash.superzk.protocol.Param;
 import org.sero.cash.superzk.util.Arrays;
 import org.spongycastle.util.encoders.Hex;
 
@@ -40,6 +44,85 @@ public class TestPoint {
 
     }
 
+    @Test
+    public void testEncoding() {
+        Point point = Point.randomPt().add(Point.randomPt());
+        byte[] data = point.toBytes();
+        data[0] ^= 1;
+        assertTrue(!Arrays.equals(data, point.toBytes()));
+        assertTrue(Point.batchToBytes(point)[0][0] == point.toBytes()[0]);
+
+        // y + q decodes to the same point but is not its encoding
+        Point decoded = Point.fromBytes(point.toBytes());
+        byte[] canonical = decoded.toBytes();
+        int sign = canonical[31] & 0x80;
+        canonical[31] &= 0x7f;
+        BigInteger y = new BigInteger(1, Arrays.reverse(Arrays.copy(canonical))).add(Constants.FQ_MODULUS);
+        if (y.bitLength() <= 255) {
+            byte[] raw = Arrays.rightPadBytes(Arrays.reverse(y.toByteArray()), 32);
+            raw[31] |= sign;
+            Point other = Point.fromBytes(Arrays.copy(raw));
+            assertTrue(other.isEqualTo(point));
+            assertTrue(Arrays.equals(other.toBytes(), point.toBytes()));
+        }
+    }
+
+    @Test
+    public void testPointDecoder() {
+        PointDecoder decoder = new PointDecoder(2);
+        byte[] data = Point.randomPt().toBytes();
+        Point first = decoder.decode(data);
+        assertTrue(decoder.decode(data) == first);
+        assertTrue(decoder.hits() == 1 && decoder.misses() == 1);
+        assertTrue(Arrays.equals(first.toBytes(), data));
+
+        decoder.decode(Point.randomPt().toBytes());
+        decoder.decode(Point.randomPt().toBytes());
+        assertTrue(decoder.size() == 2);
+        assertTrue(decoder.decode(data) != first && decoder.misses() == 4);
+
+        PointDecoder.setGlobal(decoder);
+        try {
+            Point point = Point.fromBytes(Arrays.copy(data));
+            assertTrue(Point.fromBytes(Arrays.copy(data)) == point);
+            assertTrue(decoder.hits() == 3);
+        } finally {
+            PointDecoder.setGlobal(null);
+        }
+    }
+
+    @Test
+    public void testFindPointMatchesReference() {
+        Field.FR eight = Field.newFR(8);
+        for (int n = 0; n < 20; n++) {
+            byte[] personal = Arrays.randomBytes(8);
+            byte[] data = Arrays.randomBytes(32);
+            Point expected = null;
+            byte[] temp = Arrays.copy(data);
+            for (int i = 0; expected == null && i <= 257; i++) {
+                temp[31] += i;
+                Point point = Point.fromBytes(Blake.blake2b(personal, Arrays.concat(Constants.CRS, temp)));
+                if (point != null && !point.mult(eight).isZero()) {
+                    expected = point.mult(eight);
+                }
+            }
+            assertTrue(Point.Blake2b.findPoint(personal, data).isEqualTo(expected));
+
+            byte[] data64 = Arrays.randomBytes(64);
+            expected = null;
+            for (int i = 0; expected == null && i < 256; i++) {
+                data64[63] = (byte) i;
+                byte[] buf = Blake.blake2s(personal, data64);
+                buf[31] &= 0x9f;
+                Point point = Point.fromBytes(buf);
+                if (point != null && !point.isZero() && point.isValid()) {
+                    expected = point.mult(eight);
+                }
+            }
+            assertTrue(Point.Blake2s.findPoint(personal, data64).isEqualTo(expected));
+        }
+    }
+
     @Test
     public void testFindPoint_Blake2b() {
         byte[] data = Hex.decode("15f909235e10f2a3bdf38beda4bcc59094d0cda686f6b9ec943eb89ecaabf4c4");
@@ -82,6 +165,95 @@ public class TestPoint {
         }
     }
 
+    @Test
+    public void testProjectiveInput() {
+        Point pt1 = new Point(fq1, fq2, Field.FQ.ONE);
+        Field.FQ z = Field.newFQ(12345);
+        Point pt2 = new Point(fq1.mul(z), fq2.mul(z), z);
+        assertTrue(pt2.isValid());
+        assertTrue(pt2.isEqualTo(pt1));
+        assertTrue(Arrays.equals(pt1.toBytes(), pt2.toBytes()));
+        assertTrue(pt2.add(Point.ZERO).isEqualTo(pt1));
+        assertTrue(pt2.add(pt2).isEqualTo(pt1.twice()));
+    }
+
+    @Test
+    public void testWnafMult() {
+        Point pt1 = new Point(fq1, fq2, Field.FQ.ONE);
+        for (int i = 0; i < 20; i++) {
+            Field.FR k = Field.randomFR();
+            Point expected = pt1.mult(k, 2);
+            for (int w = 3; w <= 8; w++) {
+                assertTrue(pt1.mult(k, w).isEqualTo(expected));
+            }
+            assertTrue(pt1.mult(k).add(pt1.mult(Field.FR.ONE)).isEqualTo(pt1.mult(k.add(Field.FR.ONE))));
+        }
+        assertTrue(pt1.mult(Field.FR.ZERO).isZero());
+        assertTrue(pt1.mult(Field.FR.ONE.negate()).add(pt1).isZero());
+    }
+
+    @Test
+    public void testMutablePoint() {
+        Point pt1 = new Point(fq1, fq2, Field.FQ.ONE);
+        Point pt2 = pt1.mult(fr1);
+
+        MutablePoint acc = new MutablePoint(pt1);
+        acc.addAssign(pt2);
+        assertTrue(acc.toPoint().isEqualTo(pt1.add(pt2)));
+        acc.twiceAssign();
+        assertTrue(acc.toPoint().isEqualTo(pt1.add(pt2).twice()));
+        acc.addAssign(acc);
+        assertTrue(acc.toPoint().isEqualTo(pt1.add(pt2).twice().twice()));
+
+        MutableFQ f = new MutableFQ(fq1);
+        f.mulAssign(fq2).addAssign(fq1).squareAssign();
+        assertTrue(f.toFQ().isEqualTo(fq1.mul(fq2).add(fq1).square()));
+    }
+
+    @Test
+    public void testMultiScalar() {
+        Point pt1 = new Point(fq1, fq2, Field.FQ.ONE);
+        Point pt2 = Point.Blake2b.findPoint("123456789abc".getBytes(), Arrays.randomBytes(32));
+        Field.FR s = Field.newFR(Arrays.randomBytes(32));
+        Field.FR neg = fr1.negate();
+
+        Point expected = pt1.mult(s).add(pt2.mult(neg)).add(Param.accountBase.mult(fr1));
+        Point actual = Point.multiScalar(
+                new Field.FR[]{s, neg, fr1},
+                new Mult[]{pt1, pt2, Param.accountBase});
+        assertTrue(actual.isEqualTo(expected));
+        assertTrue(Point.multiScalar(new Field.FR[]{s, s.negate()}, new Mult[]{pt1, pt1}).isZero());
+    }
+
+    @Test
+    public void testPippenger() {
+        int n = 40;
+        Field.FR[] scalars = new Field.FR[n];
+        Point[] bases = new Point[n];
+        Point expected = Point.ZERO;
+        for (int i = 0; i < n; i++) {
+            scalars[i] = i % 3 == 0 ? Field.randomFR().negate() : Field.randomFR();
+            bases[i] = Point.Blake2b.findPoint("123456789abc".getBytes(), Arrays.randomBytes(32));
+            expected = expected.add(bases[i].mult(scalars[i]));
+        }
+        assertTrue(Msm.pippenger(scalars, bases).isEqualTo(expected));
+        assertTrue(Point.multiScalar(scalars, bases).isEqualTo(expected));
+        assertTrue(bases[0].add(bases[0].negate()).isZero());
+    }
+
+    @Test
+    public void testBatchToBytes() {
+        Point pt1 = new Point(fq1, fq2, Field.FQ.ONE);
+        Point[] points = new Point[]{pt1.mult(fr1), pt1.twice(), Point.ZERO, pt1};
+        byte[][] encoded = Point.batchToBytes(points);
+        Point[] affine = Point.batchNormalize(points);
+        for (int i = 0; i < points.length; i++) {
+            assertTrue(Arrays.equals(encoded[i], points[i].toBytes()));
+            assertTrue(affine[i].isEqualTo(points[i]));
+            assertTrue(affine[i].isValid());
+        }
+    }
+
     public void testBufferToPoint(Point pt1) {
         byte[] toBuffer = pt1.toBytes();
         Point pt2 = Point.fromBytes(toBuffer);
@@ -2,6 +2,9 @@ package org.sero.cash.superzk.protocol;
 
 import static org.junit.Assert.assertTrue;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import org.junit.Test;
 import org.sero.cash.superzk.crypto.ecc.Field;
 import org.sero.cash.superzk.crypto.ecc.Point;
@@ -31,4 +34,47 @@ public class TestAsset {
         Point cm = asset.genAssetCM(ar);
         assertTrue(Arrays.equals(cm.toBytes(), Hex.decode("16e996af0e9555624baa2996da51e1883d40de6c9ad42e066893a060d9a52e01")));
     }
+
+    @Test
+    public void testGenAssetCCs() {
+        byte[] sero = Arrays.rightPadBytes("SERO".getBytes(), 32);
+        byte[] other = Arrays.rightPadBytes("OTHER".getBytes(), 32);
+        byte[] category = Arrays.rightPadBytes("TKT".getBytes(), 32);
+        byte[] empty = new byte[32];
+
+        List<Asset> adds = new ArrayList<>();
+        List<Asset> subs = new ArrayList<>();
+        adds.add(new Asset(sero, Field.newFR(100), empty, empty));
+        adds.add(new Asset(other, Field.newFR(7), category, Arrays.randomBytes(32)));
+        subs.add(new Asset(sero, Field.newFR(30), empty, empty));
+        subs.add(new Asset(other, Field.newFR(7), category, Arrays.randomBytes(32)));
+
+        Point expected = Point.ZERO;
+        for (Asset asset : adds) {
+            expected = expected.add(asset.genAssetCC());
+        }
+        for (Asset asset : subs) {
+            expected = expected.add(asset.genAssetCC().negate());
+        }
+        assertTrue(Asset.genAssetCCs(adds, subs).isEqualTo(expected));
+        assertTrue(Asset.genAssetCCs(adds, adds).isZero());
+    }
+
+    @Test
+    public void testHotCurrency() {
+        byte[] currency = Arrays.rightPadBytes("HOT".getBytes(), 32);
+        byte[] empty = new byte[32];
+        Point base = Asset.genTknBase(currency);
+        for (int i = 0; i < 40; i++) {
+            Field.FR value = Field.newFR(Arrays.concat(Arrays.randomBytes(30), new byte[2]));
+            Asset asset = new Asset(currency, value, empty, empty);
+            assertTrue(asset.genAssetCC().isEqualTo(base.mult(value)));
+        }
+
+        List<Asset> adds = new ArrayList<>();
+        List<Asset> subs = new ArrayList<>();
+        adds.add(new Asset(currency, Field.newFR(3), empty, empty));
+        subs.add(new Asset(currency, Field.newFR(10), empty, empty));
+        assertTrue(Asset.genAssetCCs(adds, subs).isEqualTo(base.mult(Field.newFR(7)).negate()));
+    }
 }
@@ -2,7 +2,11 @@ package org.sero.cash.superzk.protocol;
 
 import static org.junit.Assert.assertTrue;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import org.junit.Test;
+import org.sero.cash.superzk.crypto.ecc.Eddsa;
 import org.sero.cash.superzk.crypto.ecc.Field;
 import org.sero.cash.superzk.crypto.ecc.Point;
 import org.sero.cash.superzk.protocol.czero.Account;
@@ -52,6 +56,11 @@ public class TestCzero {
         byte[] h = Arrays.randomBytes(32);
         byte[] sign = Czero.signNil(h, sk, pkr, cm);
         assertTrue(Czero.verifyNil(h, sign, nil,pkr, cm));
+        boolean[] nils = Eddsa.verifyBatch(java.util.Arrays.asList(
+                Czero.nilItem(h, sign, nil, pkr, cm),
+                Czero.nilItem(h, sign, nil, pkr, cm),
+                Czero.nilItem(Arrays.randomBytes(32), sign, nil, pkr, cm)));
+        assertTrue(nils[0] && nils[1] && !nils[2]);
 
         sign = Czero.signByPKr(sk, h, pkr);
         assertTrue(Czero.verifyByPKr(h, sign, pkr));
@@ -59,6 +68,41 @@ public class TestCzero {
 
     }
 
+    @Test
+    public void testNilBatch() {
+        AccountType.SK sk = Account.seed2SK(Arrays.randomBytes(32));
+        AccountType.PKr pkr = sk.toTK().toPK().createPKr(Field.randomFR());
+        byte[] h = Arrays.randomBytes(32);
+        List<Eddsa.SigItem> items = new ArrayList<Eddsa.SigItem>();
+        List<byte[]> signs = new ArrayList<byte[]>();
+        List<Point> nils = new ArrayList<Point>();
+        List<Point> cms = new ArrayList<Point>();
+        for (int i = 0; i < 64; i++) {
+            Point cm = Point.randomPt();
+            Point nil = Czero.genNil(sk, cm);
+            byte[] sign = Czero.signNil(h, sk, pkr, cm);
+            items.add(Czero.nilItem(h, sign, nil, pkr, cm));
+            signs.add(sign);
+            nils.add(nil);
+            cms.add(cm);
+        }
+
+        long batch = Long.MAX_VALUE;
+        long loop = Long.MAX_VALUE;
+        for (int round = 0; round < 4; round++) {
+            long t0 = System.nanoTime();
+            boolean[] ret = Eddsa.verifyBatch(items);
+            long t1 = System.nanoTime();
+            for (int i = 0; i < items.size(); i++) {
+                assertTrue(ret[i] == Czero.verifyNil(h, signs.get(i), nils.get(i), pkr, cms.get(i)));
+            }
+            long t2 = System.nanoTime();
+            batch = Math.min(batch, t1 - t0);
+            loop = Math.min(loop, t2 - t1);
+        }
+        assertTrue(batch < loop);
+    }
+
     @Test
     public void test3() {
         AccountType.PKr pkr1 = new Account.PKr(Point.fromHex("0x303d861d913788f7f3d6fbc07e898c5f1e9a504a75ea2de5551e7535ff2892a0"),
@@ -93,4 +137,41 @@ public class TestCzero {
     }
 
 
+    @Test
+    public void testConfirmOutZ() {
+        AccountType.PK pk = Account.seed2SK(Arrays.randomBytes(32)).toTK().toPK();
+        byte[] currency = Arrays.rightPadBytes("sero".getBytes(), 32);
+        byte[] category = Arrays.rightPadBytes("sero_tkt".getBytes(), 32);
+
+        List<byte[]> keys = new ArrayList<>();
+        List<Types.Out_Z> outs = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            AccountType.PKr pkr = pk.createPKr(Field.randomFR());
+            Asset asset = new Asset(currency, Field.newFR(1000 + i), i % 3 == 0 ? category : new byte[32],
+                    i % 3 == 0 ? Arrays.randomBytes(32) : new byte[32]);
+            Field.FR rsk = Field.randomFR();
+            byte[] memo = Arrays.randomBytes(64);
+            byte[] key = Arrays.randomBytes(32);
+            Types.Out_Z out = new Types.Out_Z();
+            out.PKr = pkr;
+            out.EInfo = Czero.encInfo(new Czero.Info(asset, rsk, memo), key);
+            out.OutCM = Czero.genOutCm(asset, memo, rsk, pkr).toBytes();
+            keys.add(key);
+            outs.add(out);
+        }
+        outs.get(5).OutCM = outs.get(6).OutCM;
+        keys.set(7, Arrays.randomBytes(32));
+
+        List<Types.TDOut> confirmed = Czero.confirmOutZ(keys, outs);
+        for (int i = 0; i < outs.size(); i++) {
+            Types.TDOut single = Czero.confirmOutZ(keys.get(i), outs.get(i).EInfo, outs.get(i).PKr, outs.get(i).OutCM);
+            assertTrue((confirmed.get(i) == null) == (single == null));
+            assertTrue((single == null) == (i == 5 || i == 7));
+            if (single != null) {
+                assertTrue(Arrays.equals(confirmed.get(i).Memo, single.Memo));
+            }
+        }
+        assertTrue(Czero.genAssetCurrency(currency).isEqualTo(Czero.genAssetCurrency(currency.clone())));
+    }
+
 }
@@ -1,6 +1,12 @@
 package org.sero.cash.superzk.protocol;
 
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
 import org.junit.Test;
+import org.sero.cash.superzk.crypto.ecc.Field;
+import org.sero.cash.superzk.crypto.ecc.Point;
+import org.sero.cash.superzk.util.Arrays;
 
 public class TestSignBalance {
 
@@ -29,4 +35,28 @@ public class TestSignBalance {
 //
 //        assertTrue(Param.verifyBalance(hash, bsign, param, bcr));
     }
+
+    @Test
+    public void testRoundTrip() {
+        byte[] currency = Arrays.rightPadBytes("SERO".getBytes(), 32);
+        byte[] empty = new byte[32];
+        Types.Params param = new Types.Params();
+
+        Field.FR in_ar = Field.randomFR();
+        param.zin_acms.add(new Asset(currency, Field.newFR(100), empty, empty).genAssetCM(in_ar));
+        param.zin_ars.add(in_ar);
+        Field.FR out_ar = Field.randomFR();
+        param.zout_acms.add(new Asset(currency, Field.newFR(60), empty, empty).genAssetCM(out_ar));
+        param.zout_ars.add(out_ar);
+        param.oout_assets.add(new Asset(currency, Field.newFR(30), empty, empty));
+        param.oout_accs.add(new Asset(currency, Field.newFR(10), empty, empty).genAssetCC());
+
+        byte[] hash = Arrays.randomBytes(32);
+        byte[][] sign_balance = Param.signBalance(hash, param);
+        assertTrue(sign_balance != null);
+        assertTrue(Param.verifyBalance(hash, sign_balance[0], param, Point.fromBytes(sign_balance[1])));
+
+        param.oin_assets.add(new Asset(currency, Field.newFR(1), empty, empty));
+        assertFalse(Param.verifyBalance(hash, sign_balance[0], param, Point.fromBytes(sign_balance[1])));
+    }
 }
@@ -3,6 +3,8 @@ package org.sero.cash.superzk.protocol;
 import static org.junit.Assert.assertTrue;
 
 import org.junit.Test;
+import org.sero.cash.superzk.crypto.ecc.BitReader;
+import org.sero.cash.superzk.crypto.ecc.Eddsa;
 import org.sero.cash.superzk.crypto.ecc.Field;
 import org.sero.cash.superzk.crypto.ecc.Point;
 import org.sero.cash.superzk.protocol.superzk.Account;
@@ -68,6 +70,21 @@ public class TestSuperZk {
         assertTrue(SuperZk.verifyPKr(h, sign_pkr, pkr));
     }
 
+    @Test
+    public void testGenRootCM() {
+        Account.PKr pkr = new Account.PKr(pkr_arg.clone());
+        int[] indexes = new int[]{0, 7, 1 << 20};
+        Account.PKr[] pkrs = new Account.PKr[]{pkr, pkr, pkr};
+        Point[] cms = new Point[]{Point.randomPt(), Point.randomPt().add(Point.randomPt()), Point.randomPt()};
+        Point[] batch = Param.genRootCMs(indexes, pkrs, cms);
+        for (int i = 0; i < indexes.length; i++) {
+            byte[] blob = Arrays.concat(Param.hashIndex(indexes[i]), pkr.toBytes(), cms[i].toBytes());
+            Point expected = Param.rootBase.mult(new BitReader(blob));
+            assertTrue(Param.genRootCM(indexes[i], pkr, cms[i]).isEqualTo(expected));
+            assertTrue(batch[i].isEqualTo(expected));
+        }
+    }
+
     @Test
     public void testGenNil() {
 
@@ -82,6 +99,15 @@ public class TestSuperZk {
         assertTrue(sign_nil != null);
 
         assertTrue(SuperZk.verifyNil(h, sign_nil, nil, cm, pkr));
+
+        Point cm2 = Point.randomPt();
+        byte[] nil2 = SuperZk.genNil(tk, cm2, pkr);
+        byte[] sign_nil2 = SuperZk.signNil(h, tk, cm2, pkr);
+        boolean[] ret = Eddsa.verifyBatch(java.util.Arrays.asList(
+                SuperZk.nilItem(h, sign_nil, nil, cm, pkr),
+                SuperZk.nilItem(h, sign_nil2, nil2, cm2, pkr),
+                SuperZk.nilItem(h, sign_nil2, nil, cm, pkr)));
+        assertTrue(ret[0] && ret[1] && !ret[2]);
     }
 
 
@@ -0,0 +1,53 @@
+package org.sero.cash.superzk.protocol;
+
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+
+import org.ethereum.crypto.HashUtil;
+import org.junit.Test;
+import org.sero.cash.superzk.crypto.ecc.Point;
+import org.sero.cash.superzk.util.Arrays;
+
+import com.google.common.collect.Lists;
+
+public class TestTypes {
+
+    @Test
+    public void testTxHash() {
+        Types.Tx tx = new Types.Tx();
+        for (int i = 0; i < 3; i++) {
+            Types.In_P0 in = new Types.In_P0(Arrays.randomBytes(32));
+            in.Nil = Point.randomPt().add(Point.randomPt());
+            in.Trace = Point.randomPt().add(Point.randomPt());
+            in.Sign = Arrays.randomBytes(64);
+            tx.Ins_P0.add(in);
+
+            Types.In_C inc = new Types.In_C();
+            inc.Anchor = Arrays.randomBytes(32);
+            inc.Nil = Arrays.randomBytes(32);
+            inc.AssetCM = Point.randomPt().add(Point.randomPt());
+            inc.ZPKa = Point.randomPt().add(Point.randomPt());
+            inc.Sign = Arrays.randomBytes(64);
+            tx.Ins_C.add(inc);
+        }
+        Point nil = tx.Ins_P0.get(1).Nil;
+        Point assetCM = tx.Ins_C.get(2).AssetCM;
+
+        List<byte[]> hashes = Lists.newArrayList();
+        List<byte[]> toHashes = Lists.newArrayList();
+        tx.Ins_P0.forEach(each -> {
+            hashes.add(each.hash());
+            toHashes.add(each.toHash());
+        });
+        tx.Ins_C.forEach(each -> {
+            hashes.add(each.hash());
+            toHashes.add(each.toHash());
+        });
+
+        assertTrue(Arrays.equals(tx.hash(), HashUtil.sha3(hashes)));
+        assertTrue(Arrays.equals(tx.toHash(), HashUtil.sha3(toHashes)));
+        // hashing leaves the tx's points alone
+        assertTrue(tx.Ins_P0.get(1).Nil == nil && tx.Ins_C.get(2).AssetCM == assetCM);
+    }
+}
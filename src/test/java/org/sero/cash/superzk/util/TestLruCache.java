@@ -0,0 +1,28 @@
+package org.sero.cash.superzk.util;
+
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class TestLruCache {
+    @Test
+    public void testEvict() {
+        LruCache<Integer, String> cache = new LruCache<Integer, String>(2);
+        cache.put(1, "a");
+        cache.put(2, "b");
+        assertTrue(cache.get(1).equals("a"));
+        cache.put(3, "c");
+        assertTrue(cache.size() == 2);
+        assertTrue(cache.get(2) == null);
+        assertTrue(cache.get(1).equals("a") && cache.get(3).equals("c"));
+    }
+
+    @Test
+    public void testLoad() {
+        LruCache<Integer, String> cache = new LruCache<Integer, String>(4);
+        assertTrue(cache.get(1, k -> "v" + k).equals("v1"));
+        assertTrue(cache.get(1, k -> "other").equals("v1"));
+        assertTrue(cache.get(2, k -> null) == null);
+        assertTrue(cache.size() == 1);
+    }
+}